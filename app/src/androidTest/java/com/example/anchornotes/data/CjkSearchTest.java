@@ -0,0 +1,206 @@
+package com.example.anchornotes.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares search over CJK notes (written without spaces, indexed as
+ * character bigrams) with search over Latin notes of the same size, on
+ * the production LocalDatabase configuration: every note containing the
+ * query text must be found, and CJK queries must not be much slower.
+ * Recall, precision and latencies are logged under "CjkSearch".
+ */
+@RunWith(AndroidJUnit4.class)
+public class CjkSearchTest {
+
+    private static final String LOG_TAG = "CjkSearch";
+    private static final String TEST_DB = "cjk-search-test.db";
+
+    private static final int NOTES_PER_SCRIPT = 10_000;
+    private static final int RUNS = 20;
+    private static final long BUDGET_MILLIS = 50;
+    // CJK p50 may be at most this many times the Latin p50 (plus a little
+    // slack, both are well under a millisecond on fast devices)
+    private static final int LATENCY_FACTOR = 3;
+    private static final long SLACK_MILLIS = 2;
+
+    private static final String[] LATIN_WORDS = {
+            "meeting", "project", "groceries", "dentist", "birthday", "invoice",
+            "holiday", "workout", "recipe", "garden", "budget", "flight",
+            "parking", "laundry", "reminder", "library", "doctor", "weekend",
+            "coffee", "delivery", "passport", "conference", "schedule", "travel"
+    };
+
+    private static final String[] CJK_WORDS = {
+            // Chinese
+            "会议", "项目", "预算", "医生", "生日", "发票", "假期", "图书馆",
+            "航班", "快递", "周末", "提醒",
+            // Japanese
+            "会議室", "買い物", "誕生日", "予約", "旅行", "コーヒー", "請求書", "スケジュール",
+            // Korean
+            "회의", "예산", "병원", "생일", "여행", "도서관", "택배", "주말"
+    };
+
+    private static final String[] LATIN_QUERIES = {
+            "meeting", "library", "coffee", "passport", "birthday", "conference"
+    };
+
+    // Whole words, a phrase across two words and a single character
+    private static final String[] CJK_QUERIES = {
+            "会议", "图书馆", "誕生日", "コーヒー", "도서관", "馆"
+    };
+
+    private Context context;
+    private LocalDatabase db;
+
+    // Normalized title + content per notes rowid, to compute expected hits
+    private final Map<Long, String> latinText = new HashMap<>();
+    private final Map<Long, String> cjkText = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        db = LocalDatabase.build(context, TEST_DB);
+
+        Random random = new Random(42);
+        db.runInTransaction(() -> {
+            for (int i = 0; i < NOTES_PER_SCRIPT; i++) {
+                db.noteDao().insertNote(new Note(latin(random, 3), latin(random, 20)));
+                db.noteDao().insertNote(new Note(cjk(random, 3), cjk(random, 20)));
+            }
+        });
+
+        try (Cursor c = db.query("SELECT rowid, title, content FROM notes", null)) {
+            while (c.moveToNext()) {
+                String text = TextNormalizer.normalize(c.getString(1) + " " + c.getString(2));
+                (SearchTokenizer.containsCjk(text) ? cjkText : latinText).put(c.getLong(0), text);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void cjkSearch_fullRecallAtLatinLatency() {
+        long latin = medianLatency(LATIN_QUERIES, latinText, false);
+        long cjk = medianLatency(CJK_QUERIES, cjkText, true);
+        Log.i(LOG_TAG, "median p50 over " + NOTES_PER_SCRIPT + " notes per script: " +
+                "latin=" + latin + "ms cjk=" + cjk + "ms");
+
+        assertTrue("CJK search p50 " + cjk + "ms vs Latin " + latin + "ms",
+                cjk <= LATENCY_FACTOR * latin + SLACK_MILLIS);
+    }
+
+    @Test
+    public void cjkQuery_isSplitIntoBigramTerms() {
+        assertEquals("会议* 议记* 记录*", NoteFts.buildMatchQuery("会议记录"));
+        assertEquals("meeting* 会议*", NoteFts.buildMatchQuery("Meeting 会议"));
+        assertEquals("馆*", NoteFts.buildMatchQuery("馆"));
+    }
+
+    /**
+     * Check recall for each query, then return the median of their p50
+     * latencies. Expected hits are notes whose text contains the query
+     * (CJK) or a word starting with it (Latin, where FTS matches prefixes).
+     */
+    private long medianLatency(String[] queries, Map<Long, String> corpus, boolean substring) {
+        long[] medians = new long[queries.length];
+
+        for (int q = 0; q < queries.length; q++) {
+            String needle = TextNormalizer.normalize(queries[q]);
+            Set<Long> expected = new HashSet<>();
+            for (Map.Entry<Long, String> note : corpus.entrySet()) {
+                boolean hit = substring
+                        ? note.getValue().contains(needle)
+                        : (" " + note.getValue()).contains(" " + needle);
+                if (hit) expected.add(note.getKey());
+            }
+            assertFalse("Corpus has no notes for " + queries[q], expected.isEmpty());
+
+            String match = NoteFts.buildMatchQuery(queries[q]);
+            List<Long> found = runRowIds(match); // warm-up, also checked below
+            Set<Long> foundSet = new HashSet<>(found);
+            foundSet.retainAll(corpus.keySet());
+            int relevant = 0;
+            for (long rowId : foundSet) {
+                if (expected.contains(rowId)) relevant++;
+            }
+            assertEquals("Recall for " + queries[q], expected.size(), relevant);
+
+            long[] nanos = new long[RUNS];
+            for (int i = 0; i < RUNS; i++) {
+                long start = System.nanoTime();
+                runRowIds(match);
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+            medians[q] = nanos[RUNS / 2] / 1_000_000;
+            Log.i(LOG_TAG, "\"" + queries[q] + "\" (" + match + "): " + expected.size() +
+                    " expected, " + foundSet.size() + " found, precision=" +
+                    String.format("%.3f", relevant / (double) foundSet.size()) +
+                    ", p50=" + medians[q] + "ms p95=" + nanos[RUNS * 95 / 100] / 1_000_000 + "ms");
+            assertTrue("Search p50 " + medians[q] + "ms over budget for " + queries[q],
+                    medians[q] < BUDGET_MILLIS);
+        }
+
+        Arrays.sort(medians);
+        return medians[medians.length / 2];
+    }
+
+    private List<Long> runRowIds(String match) {
+        List<Long> rowIds = new ArrayList<>();
+        try (Cursor c = db.query("SELECT rowid FROM notes_fts WHERE notes_fts MATCH ?",
+                new Object[]{match})) {
+            while (c.moveToNext()) {
+                rowIds.add(c.getLong(0));
+            }
+        }
+        return rowIds;
+    }
+
+    private static String latin(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(LATIN_WORDS[random.nextInt(LATIN_WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    // Words run together with no spaces, a full stop every few words
+    private static String cjk(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(CJK_WORDS[random.nextInt(CJK_WORDS.length)]);
+            if (i % 5 == 4) sb.append('。');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.anchornotes.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.anchornotes.domain.NoteQuery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times typo-tolerant (trigram) searches over 20k notes on the production
+ * LocalDatabase configuration, and checks that a misspelled word still
+ * finds the notes containing it. Latencies are logged under "FuzzyBench".
+ */
+@RunWith(AndroidJUnit4.class)
+public class FuzzySearchBenchmarkTest {
+
+    private static final String LOG_TAG = "FuzzyBench";
+    private static final String TEST_DB = "fuzzy-search-test.db";
+
+    private static final int NOTE_COUNT = 20_000;
+    private static final int RUNS = 20;
+    private static final long BUDGET_MILLIS = 50;
+
+    private static final String[] WORDS = {
+            "meeting", "project", "groceries", "dentist", "birthday", "invoice",
+            "holiday", "workout", "recipe", "garden", "budget", "flight",
+            "parking", "laundry", "reminder", "library", "doctor", "weekend",
+            "presentation", "quarterly", "package", "delivery", "apartment",
+            "insurance", "passport", "conference", "schedule", "training",
+            "interview", "restaurant", "concert", "pharmacy", "mechanic",
+            "plumber", "electricity", "subscription", "homework", "vacation"
+    };
+
+    // Misspelled search text -> a word the top hit must contain
+    private static final String[][] TYPOS = {
+            {"meetng", "meeting"},
+            {"grocerys", "groceries"},
+            {"dentst", "dentist"},
+            {"prject", "project"},
+            {"pasport", "passport"},
+            {"subscripton", "subscription"}
+    };
+
+    private Context context;
+    private LocalDatabase db;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        db = LocalDatabase.build(context, TEST_DB);
+
+        Random random = new Random(42);
+        db.runInTransaction(() -> {
+            for (int i = 0; i < NOTE_COUNT; i++) {
+                db.noteDao().insertNote(new Note(words(random, 3), words(random, 20)));
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        context.deleteDatabase(TEST_DB);
+    }
+
+    @Test
+    public void typoSearch_findsIntendedWordUnderBudget() {
+        List<Long> medians = new ArrayList<>();
+
+        for (String[] typo : TYPOS) {
+            SupportSQLiteQuery query = NoteQuery.all().text(typo[0]).fuzzy(true).toFuzzyQuery();
+            List<UUID> ids = runIds(query); // warm-up, also checked below
+            assertFalse("No fuzzy hits for " + typo[0], ids.isEmpty());
+
+            Note top = db.noteDao().getNoteById(ids.get(0));
+            String text = (top.getTitle() + " " + top.getContent()).toLowerCase(Locale.ROOT);
+            assertTrue("Top hit for " + typo[0] + " lacks " + typo[1], text.contains(typo[1]));
+
+            long[] nanos = new long[RUNS];
+            for (int i = 0; i < RUNS; i++) {
+                long start = System.nanoTime();
+                runIds(query);
+                nanos[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(nanos);
+            long p50 = nanos[RUNS / 2] / 1_000_000;
+            medians.add(p50);
+            Log.i(LOG_TAG, "\"" + typo[0] + "\" over " + NOTE_COUNT + " notes: " +
+                    ids.size() + " hits, p50=" + p50 + "ms p95=" +
+                    nanos[RUNS * 95 / 100] / 1_000_000 + "ms");
+        }
+
+        for (long p50 : medians) {
+            assertTrue("Fuzzy search p50 " + p50 + "ms over budget", p50 < BUDGET_MILLIS);
+        }
+    }
+
+    private List<UUID> runIds(SupportSQLiteQuery query) {
+        List<UUID> ids = new ArrayList<>();
+        try (Cursor c = db.query(query)) {
+            while (c.moveToNext()) {
+                ids.add(Converters.fromBytesToUUID(c.getBlob(0)));
+            }
+        }
+        return ids;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
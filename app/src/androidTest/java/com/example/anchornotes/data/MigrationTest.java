@@ -0,0 +1,223 @@
+package com.example.anchornotes.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Upgrades a generated version 3 database (the oldest shipped schema) to
+ * the current version and checks that Room accepts the result and that no
+ * notes, tags or reminders are lost on the way.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+    private static final int CURRENT_VERSION = 11;
+
+    // Several copy batches per table, so the batch boundaries get exercised
+    private static final int NOTE_COUNT = 5 * DatabaseMigrations.COPY_BATCH_SIZE + 7;
+    private static final int TAG_COUNT = 20;
+
+    // Note 1 gets a body long enough to be moved out of row by 6 -> 7
+    private static final String LONG_BODY = longBody();
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(), LocalDatabase.class);
+
+    private UUID firstNoteId;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        createVersion3Database(context.getDatabasePath(TEST_DB));
+    }
+
+    @Test
+    public void migrate3ToCurrent_keepsAllRows() throws Exception {
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(
+                TEST_DB, CURRENT_VERSION, true, DatabaseMigrations.ALL);
+
+        assertEquals(NOTE_COUNT, count(db, "SELECT COUNT(*) FROM notes"));
+        assertEquals(NOTE_COUNT, count(db, "SELECT COUNT(*) FROM reminders"));
+        assertEquals(TAG_COUNT, count(db, "SELECT COUNT(*) FROM tags"));
+        assertEquals(NOTE_COUNT, count(db, "SELECT COUNT(*) FROM note_tags"));
+
+        // UUIDs came across as 16-byte BLOBs
+        try (Cursor c = db.query("SELECT id FROM notes ORDER BY rowid LIMIT 1")) {
+            c.moveToFirst();
+            assertArrayEquals(Converters.fromUUIDToBytes(firstNoteId), c.getBlob(0));
+        }
+
+        // Search index was backfilled, including tag names, and survived the
+        // rebuild that added the CJK column (empty for these Latin notes)
+        assertEquals(NOTE_COUNT, count(db,
+                "SELECT COUNT(*) FROM notes_fts WHERE notes_fts MATCH 'meeting*'"));
+        assertEquals(NOTE_COUNT / TAG_COUNT + (NOTE_COUNT % TAG_COUNT > 0 ? 1 : 0), count(db,
+                "SELECT COUNT(*) FROM notes_fts WHERE notes_fts MATCH 'tag0'"));
+        assertEquals(NOTE_COUNT, count(db, "SELECT COUNT(*) FROM notes_fts WHERE cjk IS NULL"));
+
+        // The long body moved to note_bodies; only its head stayed inline
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM note_bodies"));
+        assertEquals(1, count(db, "SELECT COUNT(*) FROM notes WHERE bodyExternal = 1 " +
+                "AND length(content) = " + NoteBody.HEAD_LENGTH));
+        try (Cursor c = db.query("SELECT codec, data FROM note_bodies")) {
+            c.moveToFirst();
+            NoteBody body = new NoteBody(UUID.randomUUID(), c.getInt(0), c.getBlob(1));
+            assertEquals(LONG_BODY, body.decode());
+        }
+
+        // Trigram index was backfilled for every note and tag
+        assertEquals(NOTE_COUNT, count(db, "SELECT COUNT(*) FROM note_trigrams " +
+                "WHERE gram = " + Trigrams.pack('m', 'e', 'e')));
+        assertEquals(TAG_COUNT, count(db, "SELECT COUNT(DISTINCT tagId) FROM tag_trigrams " +
+                "WHERE gram = " + Trigrams.pack('t', 'a', 'g')));
+
+        // Title collation keys were backfilled for every note
+        assertEquals(NOTE_COUNT, count(db, "SELECT COUNT(*) FROM notes " +
+                "WHERE titleSortKey IS NOT NULL"));
+
+        // Joins still line up after the key conversion
+        assertEquals(NOTE_COUNT, count(db, "SELECT COUNT(*) FROM notes n " +
+                "INNER JOIN reminders r ON r.noteId = n.id"));
+        db.close();
+    }
+
+    @Test
+    public void migrate3ToCurrent_emptyDatabase() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        try (SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(
+                context.getDatabasePath(TEST_DB), null)) {
+            createVersion3Schema(db);
+            db.setVersion(3);
+        }
+
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(
+                TEST_DB, CURRENT_VERSION, true, DatabaseMigrations.ALL);
+        assertEquals(0, count(db, "SELECT COUNT(*) FROM notes"));
+        db.close();
+    }
+
+    // ------------------------------------------------------------------------
+    // Version 3 fixture: TEXT UUIDs, no search table, no secondary indexes
+    // ------------------------------------------------------------------------
+
+    private void createVersion3Database(File file) {
+        file.getParentFile().mkdirs();
+        try (SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null)) {
+            createVersion3Schema(db);
+
+            UUID[] tagIds = new UUID[TAG_COUNT];
+            db.beginTransaction();
+            try {
+                SQLiteStatement tag = db.compileStatement(
+                        "INSERT INTO tags (id, name) VALUES (?, ?)");
+                for (int i = 0; i < TAG_COUNT; i++) {
+                    tagIds[i] = UUID.randomUUID();
+                    tag.bindString(1, tagIds[i].toString());
+                    tag.bindString(2, "tag" + i);
+                    tag.executeInsert();
+                }
+
+                SQLiteStatement note = db.compileStatement(
+                        "INSERT INTO notes (id, title, content, createdAt, updatedAt, " +
+                        "reminderId, pinned) VALUES (?, ?, ?, ?, ?, ?, ?)");
+                SQLiteStatement reminder = db.compileStatement(
+                        "INSERT INTO reminders (id, noteId, type, triggerTime, isActive) " +
+                        "VALUES (?, ?, 'TIME', ?, 1)");
+                SQLiteStatement noteTag = db.compileStatement(
+                        "INSERT INTO note_tags (noteId, tagId) VALUES (?, ?)");
+
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < NOTE_COUNT; i++) {
+                    UUID noteId = UUID.randomUUID();
+                    UUID reminderId = UUID.randomUUID();
+                    if (i == 0) {
+                        firstNoteId = noteId;
+                    }
+
+                    note.bindString(1, noteId.toString());
+                    note.bindString(2, "Note " + i);
+                    note.bindString(3, i == 1 ? LONG_BODY : "Meeting notes body " + i);
+                    note.bindLong(4, now - i);
+                    note.bindLong(5, now - i);
+                    note.bindString(6, reminderId.toString());
+                    note.bindLong(7, i % 10 == 0 ? 1 : 0);
+                    note.executeInsert();
+
+                    reminder.bindString(1, reminderId.toString());
+                    reminder.bindString(2, noteId.toString());
+                    reminder.bindLong(3, now + i);
+                    reminder.executeInsert();
+
+                    noteTag.bindString(1, noteId.toString());
+                    noteTag.bindString(2, tagIds[i % TAG_COUNT].toString());
+                    noteTag.executeInsert();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            db.setVersion(3);
+        }
+    }
+
+    private static void createVersion3Schema(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS `notes` (" +
+                "`id` TEXT NOT NULL, `title` TEXT, `content` TEXT, " +
+                "`createdAt` INTEGER, `updatedAt` INTEGER, `reminderId` TEXT, " +
+                "`pinned` INTEGER NOT NULL, `locationLat` REAL, `locationLng` REAL, " +
+                "`photoUri` TEXT, `audioUri` TEXT, " +
+                "`lastRelevantTriggeredAt` INTEGER, `relevantType` TEXT, " +
+                "PRIMARY KEY(`id`))");
+        db.execSQL("CREATE TABLE IF NOT EXISTS `reminders` (" +
+                "`id` TEXT NOT NULL, `noteId` TEXT NOT NULL, `type` TEXT, " +
+                "`triggerTime` INTEGER, `locationLat` REAL, `locationLng` REAL, " +
+                "`radiusMeters` REAL, `isActive` INTEGER NOT NULL, " +
+                "`retiredAt` INTEGER, " +
+                "PRIMARY KEY(`id`))");
+        db.execSQL("CREATE TABLE IF NOT EXISTS `tags` (" +
+                "`id` TEXT NOT NULL, `name` TEXT, " +
+                "PRIMARY KEY(`id`))");
+        db.execSQL("CREATE TABLE IF NOT EXISTS `note_tags` (" +
+                "`noteId` TEXT NOT NULL, `tagId` TEXT NOT NULL, " +
+                "PRIMARY KEY(`noteId`, `tagId`))");
+    }
+
+    private static String longBody() {
+        StringBuilder sb = new StringBuilder("Meeting notes transcript\n");
+        int line = 0;
+        while (sb.length() <= NoteBody.INLINE_LIMIT * 3) {
+            sb.append("line ").append(line++).append(": the quick brown fox\n");
+        }
+        return sb.toString();
+    }
+
+    private static int count(SupportSQLiteDatabase db, String sql) {
+        try (Cursor c = db.query(sql)) {
+            c.moveToFirst();
+            return c.getInt(0);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.anchornotes.data;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteProgram;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.anchornotes.domain.NoteQuery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Guards the hot query paths against full table scans by checking
+ * EXPLAIN QUERY PLAN output against the indexes declared on the entities.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+
+    private LocalDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, LocalDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void reminderForNote_usesNoteIdIndex() {
+        String plan = explain("SELECT * FROM reminders WHERE noteId = ? LIMIT 1",
+                Converters.fromUUIDToBytes(UUID.randomUUID()));
+        assertTrue(plan, plan.contains("index_reminders_noteId"));
+        assertNoScan(plan, "reminders");
+    }
+
+    @Test
+    public void notesForTag_usesTagIdIndex() {
+        String plan = explain("SELECT n.* FROM notes n " +
+                        "INNER JOIN note_tags nt ON n.id = nt.noteId " +
+                        "WHERE nt.tagId = ? " +
+                        "ORDER BY n.updatedAt DESC",
+                Converters.fromUUIDToBytes(UUID.randomUUID()));
+        assertTrue(plan, plan.contains("index_note_tags_tagId"));
+        assertNoScan(plan, "note_tags", "nt", "notes", "n");
+    }
+
+    @Test
+    public void todayRange_usesUpdatedAtIndex() {
+        long now = System.currentTimeMillis();
+        String plan = explain("SELECT * FROM notes WHERE updatedAt >= ? AND updatedAt < ?",
+                now - 86_400_000L, now);
+        assertTrue(plan, plan.contains("index_notes_updatedAt"));
+        assertNoScan(plan, "notes");
+    }
+
+    @Test
+    public void pinnedFirstPage_walksIndexWithoutSorting() {
+        String plan = explain("SELECT * FROM notes " +
+                "ORDER BY pinned DESC, updatedAt DESC, id DESC LIMIT 50");
+        assertTrue(plan, plan.contains("index_notes_pinned_updatedAt_id"));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void listFirstPage_walksIndexAndSeeksReminders() {
+        SupportSQLiteQuery query = NoteQuery.all().limit(50).toSqlQuery();
+        String plan = explain(query);
+        assertTrue(plan, plan.contains("index_notes_pinned_updatedAt_id"));
+        assertTrue(plan, plan.contains("index_reminders_noteId"));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+        assertNoScan(plan, "reminders", "r");
+    }
+
+    @Test
+    public void titleSortPages_walkCollationKeyIndexes() {
+        String asc = explain(NoteQuery.all().sort(NoteQuery.SortMode.TITLE_ASC)
+                .limit(50).toSqlQuery());
+        assertTrue(asc, asc.contains("index_notes_title_asc"));
+        assertFalse(asc, asc.contains("TEMP B-TREE"));
+
+        String desc = explain(NoteQuery.all().sort(NoteQuery.SortMode.TITLE_DESC)
+                .limit(50).toSqlQuery());
+        assertTrue(desc, desc.contains("index_notes_title_desc"));
+        assertFalse(desc, desc.contains("TEMP B-TREE"));
+    }
+
+    // ------------------------------------------------------------------------
+
+    private String explain(String sql, Object... args) {
+        return explain(new SimpleSQLiteQuery(sql, args));
+    }
+
+    private String explain(SupportSQLiteQuery query) {
+        SupportSQLiteQuery explain = new SupportSQLiteQuery() {
+            @Override
+            public String getSql() {
+                return "EXPLAIN QUERY PLAN " + query.getSql();
+            }
+
+            @Override
+            public void bindTo(SupportSQLiteProgram statement) {
+                query.bindTo(statement);
+            }
+
+            @Override
+            public int getArgCount() {
+                return query.getArgCount();
+            }
+        };
+
+        StringBuilder plan = new StringBuilder();
+        try (Cursor c = db.query(explain)) {
+            int detail = c.getColumnIndexOrThrow("detail");
+            while (c.moveToNext()) {
+                plan.append(c.getString(detail)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    /**
+     * Fails on a plain scan ("SCAN notes", "SCAN TABLE notes AS n", ...) of any
+     * of the given table names/aliases. Scans that walk an index are fine.
+     */
+    private static void assertNoScan(String plan, String... names) {
+        for (String line : plan.split("\n")) {
+            if (!line.startsWith("SCAN") || line.contains("USING")) continue;
+            for (String word : line.split(" ")) {
+                for (String name : names) {
+                    assertFalse("Full scan of " + name + ":\n" + plan, word.equals(name));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.anchornotes.data;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Search text must be folded no further than the indexed text: unicode61
+ * folds both, so a word that needs more than case and accent folding
+ * ("ß", full-width letters) still finds the note it was copied from.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchFoldingTest {
+
+    private LocalDatabase db;
+
+    private UUID strasse;
+    private UUID fullWidth;
+    private UUID cafe;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        db = Room.inMemoryDatabaseBuilder(context, LocalDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+
+        strasse = insert("Umzug", "Neue Adresse: Hauptstraße 5, Straßenbahn vor der Tür");
+        fullWidth = insert("ＡｎｃｈｏｒＮｏｔｅｓ", "Ｗｉｆｉ パスワード");
+        cafe = insert("Café", "Meet at the CAFÉ near the station");
+        insert("Groceries", "milk, eggs, bread");
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void sharpS_findsNoteAsWritten() {
+        assertEquals(setOf(strasse), search("Straße"));
+        assertEquals(setOf(strasse), search("hauptstraße"));
+    }
+
+    @Test
+    public void fullWidth_findsNoteAsWritten() {
+        assertEquals(setOf(fullWidth), search("ＡｎｃｈｏｒＮｏｔｅｓ"));
+        assertEquals(setOf(fullWidth), search("Ｗｉｆｉ"));
+    }
+
+    @Test
+    public void caseAndAccents_stillFolded() {
+        assertEquals(setOf(cafe), search("cafe"));
+        assertEquals(setOf(cafe), search("CAFÉ"));
+    }
+
+    @Test
+    public void operatorWords_areLowerCased() {
+        assertEquals("straße* or* ｃａｆｅ*", NoteFts.buildMatchQuery("Straße OR ｃａｆｅ"));
+        assertTrue(search("meet OR groceries").isEmpty());
+    }
+
+    private UUID insert(String title, String content) {
+        Note note = new Note(title, content);
+        db.noteDao().insertNote(note);
+        return note.getId();
+    }
+
+    private Set<UUID> search(String text) {
+        Set<UUID> ids = new HashSet<>();
+        try (Cursor c = db.query("SELECT n.id FROM notes_fts " +
+                        "INNER JOIN notes n ON n.rowid = notes_fts.rowid " +
+                        "WHERE notes_fts MATCH ?",
+                new Object[]{NoteFts.buildMatchQuery(text)})) {
+            while (c.moveToNext()) {
+                ids.add(Converters.fromBytesToUUID(c.getBlob(0)));
+            }
+        }
+        return ids;
+    }
+
+    private static Set<UUID> setOf(UUID... ids) {
+        Set<UUID> set = new HashSet<>();
+        for (UUID id : ids) set.add(id);
+        return set;
+    }
+}
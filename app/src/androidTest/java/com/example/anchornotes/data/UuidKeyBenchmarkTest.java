@@ -0,0 +1,248 @@
+package com.example.anchornotes.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteProgram;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares UUID keys stored as 36-char TEXT (schema version 5) with
+ * 16-byte BLOBs (version 6 on): the same 50k notes, each with a reminder
+ * and a tag, are written to one database of each kind, then the file
+ * sizes and the throughput of id lookups (including turning the keys
+ * read back into UUIDs) are compared. Results are logged under "UuidBench".
+ */
+@RunWith(AndroidJUnit4.class)
+public class UuidKeyBenchmarkTest {
+
+    private static final String LOG_TAG = "UuidBench";
+    private static final String TEXT_DB = "uuid-text-test.db";
+    private static final String BLOB_DB = "uuid-blob-test.db";
+
+    private static final int NOTE_COUNT = 50_000;
+    private static final int TAG_COUNT = 50;
+    private static final int LOOKUPS = 20_000;
+    private static final int ROUNDS = 5;
+    // BLOB lookups may be at most this much slower before the test fails;
+    // they are expected to be faster, the margin only absorbs device noise
+    private static final double MIN_SPEED_RATIO = 0.8;
+
+    /** How one database stores and reads back its keys. */
+    private abstract static class KeyCodec {
+        final String sqlType;
+
+        KeyCodec(String sqlType) {
+            this.sqlType = sqlType;
+        }
+
+        abstract Object encode(UUID id);
+
+        abstract UUID decode(Cursor c, int column);
+
+        void bind(SQLiteProgram program, int index, UUID id) {
+            Object value = encode(id);
+            if (value instanceof byte[]) {
+                program.bindBlob(index, (byte[]) value);
+            } else {
+                program.bindString(index, (String) value);
+            }
+        }
+    }
+
+    private static final KeyCodec TEXT = new KeyCodec("TEXT") {
+        @Override
+        Object encode(UUID id) {
+            return id.toString();
+        }
+
+        @Override
+        UUID decode(Cursor c, int column) {
+            return UUID.fromString(c.getString(column));
+        }
+    };
+
+    private static final KeyCodec BLOB = new KeyCodec("BLOB") {
+        @Override
+        Object encode(UUID id) {
+            return Converters.fromUUIDToBytes(id);
+        }
+
+        @Override
+        UUID decode(Cursor c, int column) {
+            return Converters.fromBytesToUUID(c.getBlob(column));
+        }
+    };
+
+    private Context context;
+    private UUID[] noteIds;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEXT_DB);
+        context.deleteDatabase(BLOB_DB);
+
+        noteIds = new UUID[NOTE_COUNT];
+        for (int i = 0; i < NOTE_COUNT; i++) {
+            noteIds[i] = UUID.randomUUID();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(TEXT_DB);
+        context.deleteDatabase(BLOB_DB);
+    }
+
+    @Test
+    public void blobKeys_smallerFileAndFasterLookups() {
+        long textOps = 0;
+        long blobOps = 0;
+        try (SQLiteDatabase text = create(TEXT_DB, TEXT);
+             SQLiteDatabase blob = create(BLOB_DB, BLOB)) {
+            // Alternate rounds so neither side benefits from a warmer device;
+            // the best round of each counts
+            for (int round = 0; round < ROUNDS; round++) {
+                textOps = Math.max(textOps, lookupsPerSecond(text, TEXT));
+                blobOps = Math.max(blobOps, lookupsPerSecond(blob, BLOB));
+            }
+        }
+
+        long textBytes = context.getDatabasePath(TEXT_DB).length();
+        long blobBytes = context.getDatabasePath(BLOB_DB).length();
+        Log.i(LOG_TAG, NOTE_COUNT + " notes: TEXT keys " + textBytes / 1024 + " KiB, " +
+                textOps + " lookups/s; BLOB keys " + blobBytes / 1024 + " KiB, " +
+                blobOps + " lookups/s (" +
+                String.format("%.0f%%", 100.0 * blobBytes / textBytes) + " of the size, " +
+                String.format("%.2fx", blobOps / (double) textOps) + " the throughput)");
+
+        assertTrue("BLOB database not smaller: " + blobBytes + " vs " + textBytes,
+                blobBytes < textBytes);
+        assertTrue("BLOB lookups slower: " + blobOps + "/s vs " + textOps + "/s",
+                blobOps >= MIN_SPEED_RATIO * textOps);
+    }
+
+    private SQLiteDatabase create(String name, KeyCodec codec) {
+        File file = context.getDatabasePath(name);
+        file.getParentFile().mkdirs();
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        createSchema(db, codec.sqlType);
+        fill(db, codec);
+        return db;
+    }
+
+    // The key columns and indexes of the real schema; only the key type differs
+    private static void createSchema(SQLiteDatabase db, String keyType) {
+        db.execSQL("CREATE TABLE `notes` (`id` " + keyType + " NOT NULL, " +
+                "`title` TEXT, `content` TEXT, `createdAt` INTEGER, `updatedAt` INTEGER, " +
+                "`reminderId` " + keyType + ", `pinned` INTEGER NOT NULL, " +
+                "PRIMARY KEY(`id`))");
+        db.execSQL("CREATE TABLE `reminders` (`id` " + keyType + " NOT NULL, " +
+                "`noteId` " + keyType + " NOT NULL, `type` TEXT, `triggerTime` INTEGER, " +
+                "`isActive` INTEGER NOT NULL, PRIMARY KEY(`id`))");
+        db.execSQL("CREATE TABLE `tags` (`id` " + keyType + " NOT NULL, `name` TEXT, " +
+                "PRIMARY KEY(`id`))");
+        db.execSQL("CREATE TABLE `note_tags` (`noteId` " + keyType + " NOT NULL, " +
+                "`tagId` " + keyType + " NOT NULL, PRIMARY KEY(`noteId`, `tagId`))");
+        db.execSQL("CREATE INDEX `index_notes_updatedAt` ON `notes` (`updatedAt`)");
+        db.execSQL("CREATE INDEX `index_reminders_noteId` ON `reminders` (`noteId`)");
+        db.execSQL("CREATE INDEX `index_note_tags_tagId` ON `note_tags` (`tagId`)");
+    }
+
+    private void fill(SQLiteDatabase db, KeyCodec codec) {
+        Random random = new Random(42);
+        UUID[] tagIds = new UUID[TAG_COUNT];
+
+        db.beginTransaction();
+        try (SQLiteStatement tag = db.compileStatement(
+                     "INSERT INTO tags (id, name) VALUES (?, ?)");
+             SQLiteStatement note = db.compileStatement(
+                     "INSERT INTO notes (id, title, content, createdAt, updatedAt, " +
+                     "reminderId, pinned) VALUES (?, ?, ?, ?, ?, ?, ?)");
+             SQLiteStatement reminder = db.compileStatement(
+                     "INSERT INTO reminders (id, noteId, type, triggerTime, isActive) " +
+                     "VALUES (?, ?, 'TIME', ?, 1)");
+             SQLiteStatement noteTag = db.compileStatement(
+                     "INSERT INTO note_tags (noteId, tagId) VALUES (?, ?)")) {
+            for (int i = 0; i < TAG_COUNT; i++) {
+                tagIds[i] = new UUID(i, i);
+                codec.bind(tag, 1, tagIds[i]);
+                tag.bindString(2, "tag" + i);
+                tag.executeInsert();
+            }
+
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < NOTE_COUNT; i++) {
+                UUID reminderId = new UUID(noteIds[i].getLeastSignificantBits(),
+                        noteIds[i].getMostSignificantBits());
+                codec.bind(note, 1, noteIds[i]);
+                note.bindString(2, "Note " + i);
+                note.bindString(3, "Meeting notes body " + i);
+                note.bindLong(4, now - i);
+                note.bindLong(5, now - i);
+                codec.bind(note, 6, reminderId);
+                note.bindLong(7, i % 10 == 0 ? 1 : 0);
+                note.executeInsert();
+
+                codec.bind(reminder, 1, reminderId);
+                codec.bind(reminder, 2, noteIds[i]);
+                reminder.bindLong(3, now + i);
+                reminder.executeInsert();
+
+                codec.bind(noteTag, 1, noteIds[i]);
+                codec.bind(noteTag, 2, tagIds[random.nextInt(TAG_COUNT)]);
+                noteTag.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Look up random notes by id with their reminder, as the detail screen
+     * does, decoding every key read back. Same id sequence for both kinds.
+     */
+    private long lookupsPerSecond(SQLiteDatabase db, KeyCodec codec) {
+        Random random = new Random(7);
+        UUID[] key = new UUID[1];
+        // rawQuery() only binds strings; the factory binds the key in its own encoding
+        SQLiteDatabase.CursorFactory bindKey = (database, driver, editTable, query) -> {
+            codec.bind(query, 1, key[0]);
+            return new SQLiteCursor(driver, editTable, query);
+        };
+
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            UUID id = noteIds[random.nextInt(NOTE_COUNT)];
+            key[0] = id;
+            try (Cursor c = db.rawQueryWithFactory(bindKey,
+                    "SELECT n.id, n.title, r.id FROM notes n " +
+                    "LEFT JOIN reminders r ON r.noteId = n.id WHERE n.id = ?", null, null)) {
+                assertTrue(c.moveToFirst());
+                assertEquals(id, codec.decode(c, 0));
+                codec.decode(c, 2);
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        return LOOKUPS * 1_000_000_000L / nanos;
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.anchornotes.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.anchornotes.domain.NoteQuery;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures list reads while a bulk reminder write is in progress, using the
+ * production LocalDatabase configuration (WAL + tuning PRAGMAs) on a file.
+ *
+ * The writer keeps its transaction open until the reads finish (or a
+ * timeout passes), so if reads were blocked by the writer the test fails
+ * instead of just getting slower. The cache/mmap tuning only reaches the
+ * writer connection, so its effect is measured on a bulk write against a
+ * second database opened with SQLite's defaults. Latencies are logged
+ * under "WalBench".
+ */
+@RunWith(AndroidJUnit4.class)
+public class WalConcurrencyTest {
+
+    private static final String LOG_TAG = "WalBench";
+    private static final String TEST_DB = "wal-concurrency-test.db";
+    private static final String UNTUNED_DB = "wal-untuned-test.db";
+
+    // SQLite's own defaults, i.e. no tuning
+    private static final int SQLITE_DEFAULT_CACHE_SIZE_KB = 2_000;
+    private static final int WRITE_ROUNDS = 3;
+
+    private static final int NOTE_COUNT = 2_000;
+    private static final int REMINDER_WRITES = 5_000;
+    private static final int READS = 50;
+
+    private Context context;
+    private LocalDatabase db;
+    private List<UUID> noteIds;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DB);
+        context.deleteDatabase(UNTUNED_DB);
+        db = LocalDatabase.build(context, TEST_DB);
+        noteIds = fill(db);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        context.deleteDatabase(TEST_DB);
+        context.deleteDatabase(UNTUNED_DB);
+    }
+
+    /** Insert NOTE_COUNT notes; returns their ids. */
+    private static List<UUID> fill(LocalDatabase db) {
+        List<UUID> ids = new ArrayList<>(NOTE_COUNT);
+        db.runInTransaction(() -> {
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < NOTE_COUNT; i++) {
+                Note note = new Note("Note " + i, "Body " + i);
+                note.setUpdatedAt(new Date(now - i * 1_000L));
+                db.noteDao().insertNote(note);
+                ids.add(note.getId());
+            }
+        });
+        return ids;
+    }
+
+    @Test
+    public void journalModeIsWal() {
+        assertTrue(db.getOpenHelper().getWritableDatabase().isWriteAheadLoggingEnabled());
+    }
+
+    @Test
+    public void writerTuning_appliedAndMeasured() {
+        SupportSQLiteDatabase sql = db.getOpenHelper().getWritableDatabase();
+        // Inside a transaction queries run on the writer connection
+        db.runInTransaction(() -> {
+            assertEquals(-LocalDatabase.DEFAULT_CACHE_SIZE_KB, pragma(sql, "cache_size"));
+            assertEquals(LocalDatabase.DEFAULT_MMAP_SIZE_BYTES, pragma(sql, "mmap_size"));
+        });
+
+        LocalDatabase.setTuning(SQLITE_DEFAULT_CACHE_SIZE_KB, 0);
+        LocalDatabase untuned = LocalDatabase.build(context, UNTUNED_DB);
+        long tunedMillis = Long.MAX_VALUE;
+        long untunedMillis = Long.MAX_VALUE;
+        try {
+            List<UUID> untunedIds = fill(untuned);
+            // Alternate so neither side gets a warmer device; best round counts
+            for (int round = 0; round < WRITE_ROUNDS; round++) {
+                tunedMillis = Math.min(tunedMillis, bulkReminderWriteMillis(db, noteIds));
+                untunedMillis = Math.min(untunedMillis,
+                        bulkReminderWriteMillis(untuned, untunedIds));
+            }
+        } finally {
+            untuned.close();
+            LocalDatabase.setTuning(LocalDatabase.DEFAULT_CACHE_SIZE_KB,
+                    LocalDatabase.DEFAULT_MMAP_SIZE_BYTES);
+        }
+
+        Log.i(LOG_TAG, REMINDER_WRITES + " reminder writes: tuned writer " + tunedMillis +
+                "ms, SQLite defaults " + untunedMillis + "ms");
+    }
+
+    @Test
+    public void listReads_proceedDuringBulkReminderWrite() throws Exception {
+        CountDownLatch writerInTransaction = new CountDownLatch(1);
+        CountDownLatch readsDone = new CountDownLatch(1);
+        AtomicBoolean writerCommitted = new AtomicBoolean(false);
+        long[] writeMillis = new long[1];
+
+        Thread writer = new Thread(() -> {
+            long start = SystemClock.elapsedRealtime();
+            db.runInTransaction(() -> {
+                for (int i = 0; i < REMINDER_WRITES; i++) {
+                    Reminder reminder = new Reminder(noteIds.get(i % noteIds.size()),
+                            ReminderType.TIME);
+                    reminder.setTriggerTime(new Date(System.currentTimeMillis() + i));
+                    reminder.setIsActive(true);
+                    db.noteDao().insertReminder(reminder);
+                    if (i == 0) {
+                        writerInTransaction.countDown();
+                    }
+                }
+                try {
+                    // Hold the write open until the reader is done
+                    readsDone.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            writerCommitted.set(true);
+            writeMillis[0] = SystemClock.elapsedRealtime() - start;
+        }, "bench-writer");
+
+        writer.start();
+        assertTrue(writerInTransaction.await(10, TimeUnit.SECONDS));
+
+        SupportSQLiteQuery page = NoteQuery.all().limit(50).toSqlQuery();
+        long[] readNanos = new long[READS];
+        for (int i = 0; i < READS; i++) {
+            long start = System.nanoTime();
+            List<NoteSummary> items = db.noteDao().queryNoteSummaries(page);
+            readNanos[i] = System.nanoTime() - start;
+            assertEquals(50, items.size());
+        }
+        boolean committedDuringReads = writerCommitted.get();
+        readsDone.countDown();
+        writer.join();
+
+        Arrays.sort(readNanos);
+        Log.i(LOG_TAG, "list page during write: p50=" + readNanos[READS / 2] / 1_000 +
+                "us p95=" + readNanos[READS * 95 / 100] / 1_000 +
+                "us max=" + readNanos[READS - 1] / 1_000 + "us; " +
+                REMINDER_WRITES + " reminder writes took " + writeMillis[0] + "ms");
+
+        assertFalse("List reads waited for the writer to commit", committedDuringReads);
+    }
+
+    private static long bulkReminderWriteMillis(LocalDatabase db, List<UUID> noteIds) {
+        long start = SystemClock.elapsedRealtime();
+        db.runInTransaction(() -> {
+            for (int i = 0; i < REMINDER_WRITES; i++) {
+                Reminder reminder = new Reminder(noteIds.get(i % noteIds.size()),
+                        ReminderType.TIME);
+                reminder.setTriggerTime(new Date(System.currentTimeMillis() + i));
+                reminder.setIsActive(true);
+                db.noteDao().insertReminder(reminder);
+            }
+        });
+        return SystemClock.elapsedRealtime() - start;
+    }
+
+    private static long pragma(SupportSQLiteDatabase sql, String name) {
+        try (Cursor c = sql.query("PRAGMA " + name)) {
+            assertTrue(c.moveToFirst());
+            return c.getLong(0);
+        }
+    }
+}
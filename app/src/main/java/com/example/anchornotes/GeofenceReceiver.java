@@ -4,6 +4,7 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 
+import com.example.anchornotes.data.DatabaseExecutor;
 import com.example.anchornotes.data.Note;
 import com.example.anchornotes.data.NoteRepository;
 import com.example.anchornotes.data.NotificationService;
@@ -49,13 +50,27 @@ public class GeofenceReceiver extends BroadcastReceiver {
             return;
         }
 
+        // Database work can't run on the receiver's main thread; keep the
+        // broadcast alive until the background task is done.
+        PendingResult pendingResult = goAsync();
+        Context appContext = context.getApplicationContext();
+        DatabaseExecutor.execute(() -> {
+            try {
+                handleGeofenceEvent(appContext, noteIdFromReminder);
+            } finally {
+                pendingResult.finish();
+            }
+        });
+    }
+
+    private void handleGeofenceEvent(Context context, UUID noteIdFromReminder) {
         // Let the domain layer handle this location-based reminder event
         ReminderManager reminderManager = new ReminderManager(context);
         // <-- changed to domain-level handler per design
         reminderManager.handleGeofenceEvent(noteIdFromReminder);
 
         // Look up the note title for notification display
-        NoteRepository repo = new NoteRepository(context.getApplicationContext());
+        NoteRepository repo = new NoteRepository(context);
         Note note = repo.getNote(noteIdFromReminder);
 
         String noteTitle = (note != null && note.getTitle() != null)
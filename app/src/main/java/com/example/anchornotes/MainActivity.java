@@ -1,5 +1,6 @@
 package com.example.anchornotes;
 
+import androidx.activity.OnBackPressedCallback;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -10,25 +11,21 @@ import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.widget.Button;
+import android.view.View;
 import android.widget.EditText;
 import android.widget.TextView;
+import android.widget.Toast;
 
-import com.example.anchornotes.data.Note;
-import com.example.anchornotes.data.Reminder;
-import com.example.anchornotes.data.ReminderType;
+import com.example.anchornotes.data.NoteSummary;
 import com.example.anchornotes.data.Tag;
 import com.example.anchornotes.domain.NoteListController;
-import com.example.anchornotes.domain.ReminderManager;
-import com.example.anchornotes.domain.TagManager;
+import com.example.anchornotes.domain.NoteQuery;
+import com.example.anchornotes.domain.NoteQuery.FilterMode;
+import com.example.anchornotes.domain.NoteQuery.SortMode;
 import com.example.anchornotes.ui.NoteListAdapter;
 
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 import java.util.UUID;
 
 public class MainActivity extends AppCompatActivity implements
@@ -41,31 +38,35 @@ public class MainActivity extends AppCompatActivity implements
     private TextView txtNotes;
     private RecyclerView recyclerNotes;
     private EditText edtSearch;
+    private View layoutSelectionBar;
+    private TextView txtSelectionCount;
 
-    private ReminderManager reminderManager;
     private NoteListController noteListController;
     private NoteListAdapter adapter;
-    private TagManager tagManager;
-
-    // Sort + Filter modes
-    private enum SortMode {
-        NEWEST_FIRST,
-        OLDEST_FIRST,
-        TITLE_ASC,
-        TITLE_DESC,
-        REMINDERS_FIRST
-    }
 
-    private enum FilterMode {
-        ALL,
-        HAS_REMINDER,
-        TIME_ONLY,
-        LOCATION_ONLY,
-        NO_REMINDER,
-        TODAY
-    }
+    // Start loading the next page when this many rows are left below the fold
+    private static final int LOAD_MORE_THRESHOLD = 15;
+
+    // RecyclerView tuning: off-screen rows kept bound (no rebind when they
+    // scroll back), recycled holders kept per view type, and item_note views
+    // inflated in the background before the first fling
+    private static final int ITEM_VIEW_CACHE_SIZE = 10;
+    private static final int MAX_RECYCLED_ROWS = 20;
+    private static final int PRE_INFLATED_ROWS = 12;
 
-    private SortMode currentSortMode = SortMode.NEWEST_FIRST;
+    private static final long ONE_HOUR_MILLIS = 60L * 60 * 1000;
+    private static final long ONE_DAY_MILLIS = 24 * ONE_HOUR_MILLIS;
+
+    // Back leaves multi-select mode instead of the screen while it's active
+    private final OnBackPressedCallback exitSelectionOnBack = new OnBackPressedCallback(false) {
+        @Override
+        public void handleOnBackPressed() {
+            adapter.clearSelection();
+        }
+    };
+
+    // Best match while searching, newest first otherwise
+    private SortMode currentSortMode = SortMode.RELEVANCE;
     private FilterMode currentFilterMode = FilterMode.ALL;
     private String currentSearchQuery = "";
 
@@ -75,9 +76,7 @@ public class MainActivity extends AppCompatActivity implements
         setContentView(R.layout.activity_main);
 
         // Init managers/controllers
-        reminderManager = new ReminderManager(this);
         noteListController = new NoteListController(this, this);
-        tagManager = new TagManager(this);
 
         // Init views
         btnAddNote = findViewById(R.id.btnAddNote);
@@ -86,11 +85,34 @@ public class MainActivity extends AppCompatActivity implements
         txtNotes = findViewById(R.id.txtNotes);
         recyclerNotes = findViewById(R.id.recyclerNotes);
         edtSearch = findViewById(R.id.edtSearch);
+        layoutSelectionBar = findViewById(R.id.layoutSelectionBar);
+        txtSelectionCount = findViewById(R.id.txtSelectionCount);
 
         // Set up RecyclerView
-        recyclerNotes.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        // Bind upcoming rows in the idle time between frames while scrolling
+        layoutManager.setItemPrefetchEnabled(true);
+        recyclerNotes.setLayoutManager(layoutManager);
+        // The list fills its weighted slot; its size never depends on the rows
+        recyclerNotes.setHasFixedSize(true);
+        recyclerNotes.setItemViewCacheSize(ITEM_VIEW_CACHE_SIZE);
+        recyclerNotes.getRecycledViewPool().setMaxRecycledViews(0, MAX_RECYCLED_ROWS);
         adapter = new NoteListAdapter(this, new ArrayList<>(), this);
         recyclerNotes.setAdapter(adapter);
+        adapter.preInflate(recyclerNotes, PRE_INFLATED_ROWS);
+
+        // Load the next page when the user scrolls near the end of what's loaded
+        recyclerNotes.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0 || !noteListController.hasMoreNotes()) return;
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible >= adapter.getItemCount() - LOAD_MORE_THRESHOLD) {
+                    // Posted: the adapter can't be changed inside a scroll callback
+                    recyclerView.post(noteListController::loadMoreNotes);
+                }
+            }
+        });
 
         // Add note button
         btnAddNote.setOnClickListener(v -> openNewNote());
@@ -109,7 +131,8 @@ public class MainActivity extends AppCompatActivity implements
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 currentSearchQuery = s != null ? s.toString() : "";
-                updateNotesUI();
+                // Debounced and cancellable: only the newest text gets queried
+                noteListController.search(currentQuery());
             }
 
             @Override
@@ -122,6 +145,9 @@ public class MainActivity extends AppCompatActivity implements
             updateNotesUI();
         });
 
+        setUpSelectionBar();
+        getOnBackPressedDispatcher().addCallback(this, exitSelectionOnBack);
+
         // Initial load
         updateNotesUI();
     }
@@ -136,20 +162,35 @@ public class MainActivity extends AppCompatActivity implements
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        // Refresh list when returning from NoteDetailActivity
-        updateNotesUI();
+    protected void onStart() {
+        super.onStart();
+        // Re-queries only if notes, reminders or tags changed while away
+        // (e.g. in NoteDetailActivity), then on every later write
+        noteListController.startObserving();
+    }
+
+    @Override
+    protected void onStop() {
+        noteListController.stopObserving();
+        super.onStop();
     }
 
     private void updateNotesUI() {
         if (noteListController != null) {
-            noteListController.loadNotes();
+            noteListController.loadNotes(currentQuery());
         }
     }
 
+    private NoteQuery currentQuery() {
+        // Filter, sort and search all run in one SQL statement
+        return NoteQuery.all()
+                .filter(currentFilterMode)
+                .sort(currentSortMode)
+                .text(currentSearchQuery);
+    }
+
     @Override
-    public void onNoteClick(Note note) {
+    public void onNoteClick(NoteSummary note) {
         if (note == null) return;
 
         if (noteListController != null) {
@@ -166,31 +207,37 @@ public class MainActivity extends AppCompatActivity implements
     // ------------------------------------------------------------------------
 
     @Override
-    public void onNotesLoaded(List<Note> allNotes) {
-        if (allNotes == null) {
+    public void onNotesLoaded(List<NoteSummary> items, int totalCount) {
+        if (items == null) {
             adapter.setNotes(new ArrayList<>());
             txtNotes.setText("Total notes: 0");
             return;
         }
 
-        List<Note> filtered = new ArrayList<>();
-
-        // Apply filtering + search
-        for (Note note : allNotes) {
-            if (note == null) continue;
-            if (passesFilter(note) && matchesSearch(note)) {
-                filtered.add(note);
-            }
-        }
-
-        // Apply sorting
-        Collections.sort(filtered, getComparator());
+        // Rows arrive already filtered + sorted by the NoteQuery (first page only)
 
         // Update count label with filter hint
-        txtNotes.setText("Matching notes: " + filtered.size());
+        txtNotes.setText("Matching notes: " + totalCount);
 
         // Push to adapter
-        adapter.setNotes(filtered);
+        adapter.setNotes(items);
+    }
+
+    @Override
+    public void onSimilarNotesLoaded(List<NoteSummary> items, int totalCount) {
+        // Nothing matched the words as typed; these are close spellings
+        txtNotes.setText("No exact matches – similar notes: " + totalCount);
+        adapter.setNotes(items);
+    }
+
+    @Override
+    public void onMoreNotesLoaded(List<NoteSummary> items) {
+        adapter.appendNotes(items);
+    }
+
+    @Override
+    public void onNotesLoadFailed() {
+        Toast.makeText(this, "Couldn't load notes", Toast.LENGTH_SHORT).show();
     }
 
     @Override
@@ -207,12 +254,113 @@ public class MainActivity extends AppCompatActivity implements
         startActivity(intent);
     }
 
+    @Override
+    public void onBulkActionDone() {
+        // The write itself triggers the list refresh
+        adapter.clearSelection();
+    }
+
+    // ------------------------------------------------------------------------
+    // Multi-select
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void onSelectionChanged(int selectedCount) {
+        boolean selecting = selectedCount > 0;
+        layoutSelectionBar.setVisibility(selecting ? View.VISIBLE : View.GONE);
+        txtSelectionCount.setText(selectedCount + " selected");
+        exitSelectionOnBack.setEnabled(selecting);
+    }
+
+    private void setUpSelectionBar() {
+        findViewById(R.id.btnSelectionDelete).setOnClickListener(v -> confirmDeleteSelected());
+        findViewById(R.id.btnSelectionPin).setOnClickListener(v ->
+                noteListController.setPinned(adapter.getSelectedIds(), true));
+        findViewById(R.id.btnSelectionUnpin).setOnClickListener(v ->
+                noteListController.setPinned(adapter.getSelectedIds(), false));
+        findViewById(R.id.btnSelectionTag).setOnClickListener(v -> showTagSelectedDialog());
+        findViewById(R.id.btnSelectionReminder).setOnClickListener(v -> showReminderSelectedDialog());
+        findViewById(R.id.btnSelectionCancel).setOnClickListener(v -> adapter.clearSelection());
+    }
+
+    private void confirmDeleteSelected() {
+        List<UUID> ids = adapter.getSelectedIds();
+        if (ids.isEmpty()) return;
+
+        new AlertDialog.Builder(this)
+                .setTitle("Delete notes")
+                .setMessage("Delete " + ids.size() + " selected note(s)?")
+                .setPositiveButton("Delete", (dialog, which) ->
+                        noteListController.deleteNotes(ids))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showTagSelectedDialog() {
+        List<UUID> ids = adapter.getSelectedIds();
+        if (ids.isEmpty()) return;
+
+        noteListController.loadTags(tags -> {
+            if (isFinishing() || isDestroyed()) return;
+            if (tags == null || tags.isEmpty()) {
+                new AlertDialog.Builder(this)
+                        .setTitle("Add tag")
+                        .setMessage("No tags yet. Create one from a note first.")
+                        .setPositiveButton("OK", null)
+                        .show();
+                return;
+            }
+
+            String[] names = new String[tags.size()];
+            for (int i = 0; i < tags.size(); i++) {
+                names[i] = tags.get(i).getName();
+            }
+
+            new AlertDialog.Builder(this)
+                    .setTitle("Add tag to " + ids.size() + " note(s)")
+                    .setItems(names, (dialog, which) -> {
+                        Tag tag = tags.get(which);
+                        noteListController.addTagToNotes(ids, tag.getId());
+                    })
+                    .show();
+        });
+    }
+
+    private void showReminderSelectedDialog() {
+        List<UUID> ids = adapter.getSelectedIds();
+        if (ids.isEmpty()) return;
+
+        String[] options = new String[]{
+                "Move time reminders 1 hour later",
+                "Move time reminders 1 day later",
+                "Clear reminders"
+        };
+
+        new AlertDialog.Builder(this)
+                .setTitle("Reminders for " + ids.size() + " note(s)")
+                .setItems(options, (dialog, which) -> {
+                    switch (which) {
+                        case 0:
+                            noteListController.postponeReminders(ids, ONE_HOUR_MILLIS);
+                            break;
+                        case 1:
+                            noteListController.postponeReminders(ids, ONE_DAY_MILLIS);
+                            break;
+                        case 2:
+                            noteListController.clearReminders(ids);
+                            break;
+                    }
+                })
+                .show();
+    }
+
     // ------------------------------------------------------------------------
     // Sorting + Filtering UI
     // ------------------------------------------------------------------------
 
     private void showSortDialog() {
         String[] options = new String[]{
+                "Best match (when searching)",
                 "Newest first",
                 "Oldest first",
                 "Title A–Z",
@@ -225,18 +373,21 @@ public class MainActivity extends AppCompatActivity implements
                 .setItems(options, (dialog, which) -> {
                     switch (which) {
                         case 0:
-                            currentSortMode = SortMode.NEWEST_FIRST;
+                            currentSortMode = SortMode.RELEVANCE;
                             break;
                         case 1:
-                            currentSortMode = SortMode.OLDEST_FIRST;
+                            currentSortMode = SortMode.NEWEST_FIRST;
                             break;
                         case 2:
-                            currentSortMode = SortMode.TITLE_ASC;
+                            currentSortMode = SortMode.OLDEST_FIRST;
                             break;
                         case 3:
-                            currentSortMode = SortMode.TITLE_DESC;
+                            currentSortMode = SortMode.TITLE_ASC;
                             break;
                         case 4:
+                            currentSortMode = SortMode.TITLE_DESC;
+                            break;
+                        case 5:
                             currentSortMode = SortMode.REMINDERS_FIRST;
                             break;
                     }
@@ -278,164 +429,4 @@ public class MainActivity extends AppCompatActivity implements
                 })
                 .show();
     }
-
-    // ------------------------------------------------------------------------
-    // Filtering + search + sorting helpers
-    // ------------------------------------------------------------------------
-
-    private boolean passesFilter(Note note) {
-        if (currentFilterMode == FilterMode.ALL) {
-            return true;
-        }
-
-        UUID noteId = note.getId();
-        if (noteId == null) {
-            return false;
-        }
-
-        Reminder reminder = reminderManager.getReminderForNote(noteId);
-
-        switch (currentFilterMode) {
-            case HAS_REMINDER:
-                return reminder != null && reminder.isActive();
-
-            case TIME_ONLY:
-                return reminder != null
-                        && reminder.isActive()
-                        && reminder.getType() == ReminderType.TIME;
-
-            case LOCATION_ONLY:
-                return reminder != null
-                        && reminder.isActive()
-                        && reminder.getType() == ReminderType.LOCATION;
-
-            case NO_REMINDER:
-                return reminder == null || !reminder.isActive();
-
-            case TODAY:
-                return isToday(note.getUpdatedAt());
-
-            case ALL:
-            default:
-                return true;
-        }
-    }
-
-    private boolean isToday(Date date) {
-        if (date == null) return false;
-
-        Calendar noteCal = Calendar.getInstance();
-        noteCal.setTime(date);
-
-        Calendar today = Calendar.getInstance();
-
-        return noteCal.get(Calendar.YEAR) == today.get(Calendar.YEAR)
-                && noteCal.get(Calendar.DAY_OF_YEAR) == today.get(Calendar.DAY_OF_YEAR);
-    }
-
-
-    /**
-     * Returns true if the note matches the current search query
-     * in title, content, or tag names.
-     */
-    private boolean matchesSearch(Note note) {
-        if (currentSearchQuery == null || currentSearchQuery.trim().isEmpty()) {
-            return true; // no active search
-        }
-
-        String q = currentSearchQuery.trim().toLowerCase(Locale.US);
-
-        // Title/content
-        String title = safeTitle(note.getTitle()).toLowerCase(Locale.US);
-        String content = note.getContent() != null
-                ? note.getContent().toLowerCase(Locale.US)
-                : "";
-
-        if (title.contains(q) || content.contains(q)) {
-            return true;
-        }
-
-        // Tags
-        if (tagManager != null && note.getId() != null) {
-            List<Tag> tags = tagManager.getTagsForNote(note.getId());
-            if (tags != null) {
-                for (Tag t : tags) {
-                    if (t != null && t.getName() != null &&
-                            t.getName().toLowerCase(Locale.US).contains(q)) {
-                        return true;
-                    }
-                }
-            }
-        }
-
-        // Could extend to location text later if needed
-        return false;
-    }
-
-    private Comparator<Note> getComparator() {
-        return (a, b) -> {
-            if (a == null && b == null) return 0;
-            if (a == null) return 1;
-            if (b == null) return -1;
-
-            switch (currentSortMode) {
-                case NEWEST_FIRST:
-                    return Long.compare(
-                            safeTime(b.getUpdatedAt()),
-                            safeTime(a.getUpdatedAt())
-                    );
-
-                case OLDEST_FIRST:
-                    return Long.compare(
-                            safeTime(a.getUpdatedAt()),
-                            safeTime(b.getUpdatedAt())
-                    );
-
-                case TITLE_ASC: {
-                    String ta = safeTitle(a.getTitle());
-                    String tb = safeTitle(b.getTitle());
-                    return ta.compareToIgnoreCase(tb);
-                }
-
-                case TITLE_DESC: {
-                    String ta = safeTitle(a.getTitle());
-                    String tb = safeTitle(b.getTitle());
-                    return tb.compareToIgnoreCase(ta);
-                }
-
-                case REMINDERS_FIRST: {
-                    boolean aHasReminder = hasActiveReminder(a);
-                    boolean bHasReminder = hasActiveReminder(b);
-
-                    if (aHasReminder && !bHasReminder) return -1;
-                    if (!aHasReminder && bHasReminder) return 1;
-
-                    // Fallback to newest first
-                    return Long.compare(
-                            safeTime(b.getUpdatedAt()),
-                            safeTime(a.getUpdatedAt())
-                    );
-                }
-
-                default:
-                    return 0;
-            }
-        };
-    }
-
-    private boolean hasActiveReminder(Note note) {
-        if (note == null || note.getId() == null) {
-            return false;
-        }
-        Reminder reminder = reminderManager.getReminderForNote(note.getId());
-        return reminder != null && reminder.isActive();
-    }
-
-    private long safeTime(Date date) {
-        return date != null ? date.getTime() : 0L;
-    }
-
-    private String safeTitle(String title) {
-        return title != null ? title : "";
-    }
 }
@@ -7,6 +7,7 @@ import android.content.pm.PackageManager;
 import android.location.Location;
 import android.net.Uri;
 import android.os.Bundle;
+import android.util.Pair;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
@@ -16,8 +17,10 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 
+import com.example.anchornotes.data.DatabaseExecutor;
 import com.example.anchornotes.data.LocationProviderService;
 import com.example.anchornotes.data.Note;
+import com.example.anchornotes.data.ObservableQuery;
 import com.example.anchornotes.data.Reminder;
 import com.example.anchornotes.data.ReminderType;
 import com.example.anchornotes.data.Tag;
@@ -56,6 +59,9 @@ public class NoteDetailActivity extends AppCompatActivity implements NoteDetailC
     private UUID noteId = null;
     private Note currentNote;
 
+    // The note's tags, re-queried only when tags or note_tags change
+    private ObservableQuery<List<Tag>> tagsQuery;
+
     private NoteDetailController controller;
     private ReminderManager reminderManager;
     private TagManager tagManager;
@@ -94,7 +100,7 @@ public class NoteDetailActivity extends AppCompatActivity implements NoteDetailC
         String idString = getIntent().getStringExtra(EXTRA_NOTE_ID);
         if (idString != null) {
             noteId = UUID.fromString(idString);
-            controller.loadExistingNote(noteId);
+            // Loaded (and kept up to date) from onStart()
         } else {
             btnDelete.setEnabled(false); // Can't delete a new note
             txtReminderInfo.setText("No reminder set");
@@ -127,8 +133,11 @@ public class NoteDetailActivity extends AppCompatActivity implements NoteDetailC
         // Clear reminder
         btnClearReminder.setOnClickListener(v -> {
             if (noteId != null) {
-                reminderManager.removeRemindersForNote(noteId);
-                txtReminderInfo.setText("No reminder set");
+                UUID id = noteId;
+                DatabaseExecutor.execute(
+                        () -> reminderManager.removeRemindersForNote(id),
+                        () -> txtReminderInfo.setText("No reminder set")
+                );
             } else {
                 showError("Please save the note before clearing reminders.");
             }
@@ -150,15 +159,27 @@ public class NoteDetailActivity extends AppCompatActivity implements NoteDetailC
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        // When returning from ReminderSetupActivity or MapPickerActivity,
-        // reload the note + reminder to update UI.
+    protected void onStart() {
+        super.onStart();
+        // Queries run only if the note, reminder or tags were written since
+        // the last result (e.g. in ReminderSetupActivity or MapPickerActivity),
+        // and again whenever they are written while this screen is visible.
         if (noteId != null) {
-            controller.loadExistingNote(noteId);
-            refreshTags();
-            // location will be refreshed in onNoteLoaded()
+            controller.startObserving(noteId);
+            if (tagsQuery == null) {
+                tagsQuery = tagManager.observeTagsForNote(noteId);
+            }
+            tagsQuery.start(this::showTags);
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        controller.stopObserving();
+        if (tagsQuery != null) {
+            tagsQuery.stop();
         }
+        super.onStop();
     }
 
     // -------------------------------------------------------------------------
@@ -169,13 +190,19 @@ public class NoteDetailActivity extends AppCompatActivity implements NoteDetailC
     public void onNoteLoaded(Note note, Reminder reminder) {
         if (note == null) return;
 
+        // A write elsewhere (reminder, location) re-delivers the note; keep
+        // any unsaved edits in the text fields
+        if (currentNote == null || showsLoaded(edtTitle, currentNote.getTitle())) {
+            edtTitle.setText(note.getTitle());
+        }
+        if (currentNote == null || showsLoaded(edtContent, currentNote.getContent())) {
+            edtContent.setText(note.getContent());
+        }
+
         // Track the id and current note
         noteId = note.getId();
         currentNote = note;
 
-        edtTitle.setText(note.getTitle());
-        edtContent.setText(note.getContent());
-
         if (reminder == null || !reminder.isActive()) {
             txtReminderInfo.setText("No reminder set");
         } else if (reminder.getType() == ReminderType.TIME) {
@@ -186,11 +213,14 @@ public class NoteDetailActivity extends AppCompatActivity implements NoteDetailC
             txtReminderInfo.setText("Reminder set");
         }
 
-        // Update tags + location display
-        refreshTags();
+        // Tags are observed separately (onStart)
         updateLocationUI();
     }
 
+    private static boolean showsLoaded(EditText field, String loaded) {
+        return field.getText().toString().equals(loaded != null ? loaded : "");
+    }
+
     @Override
     public void onNoteSaved() {
         // After saving a new note, just finish back to the list.
@@ -229,13 +259,7 @@ public class NoteDetailActivity extends AppCompatActivity implements NoteDetailC
     // Tags helpers
     // -------------------------------------------------------------------------
 
-    private void refreshTags() {
-        if (noteId == null) {
-            txtTags.setText("Tags: none");
-            return;
-        }
-
-        List<Tag> tags = tagManager.getTagsForNote(noteId);
+    private void showTags(List<Tag> tags) {
         if (tags == null || tags.isEmpty()) {
             txtTags.setText("Tags: none");
             return;
@@ -251,9 +275,18 @@ public class NoteDetailActivity extends AppCompatActivity implements NoteDetailC
 
     private void showEditTagsDialog() {
         // Load all tags and the ones currently attached to this note
-        List<Tag> allTags = tagManager.getAllTags();
-        List<Tag> noteTags = tagManager.getTagsForNote(noteId);
+        UUID id = noteId;
+        DatabaseExecutor.submit(
+                () -> Pair.create(tagManager.getAllTags(), tagManager.getTagsForNote(id)),
+                tags -> {
+                    if (!isFinishing()) {
+                        showEditTagsDialog(tags.first, tags.second);
+                    }
+                }
+        );
+    }
 
+    private void showEditTagsDialog(List<Tag> allTags, List<Tag> noteTags) {
         if (allTags == null) {
             allTags = new ArrayList<>();
         }
@@ -306,8 +339,9 @@ public class NoteDetailActivity extends AppCompatActivity implements NoteDetailC
                         selectedIds.add(allTagsFinal.get(i).getId());
                     }
                 }
-                tagManager.setTagsForNote(noteId, selectedIds);
-                refreshTags();
+                UUID id = noteId;
+                // tagsQuery picks up the change
+                DatabaseExecutor.execute(() -> tagManager.setTagsForNote(id, selectedIds));
             }
         });
 
@@ -339,10 +373,11 @@ public class NoteDetailActivity extends AppCompatActivity implements NoteDetailC
                     @Override
                     public void onClick(DialogInterface dialog, int which) {
                         String name = input.getText().toString();
-                        Tag created = tagManager.createTag(name);
-                        if (created != null && cb != null) {
-                            cb.onTagCreated();
-                        }
+                        DatabaseExecutor.submit(() -> tagManager.createTag(name), created -> {
+                            if (created != null && cb != null && !isFinishing()) {
+                                cb.onTagCreated();
+                            }
+                        });
                     }
                 })
                 .setNegativeButton("Cancel", null)
@@ -396,7 +431,7 @@ public class NoteDetailActivity extends AppCompatActivity implements NoteDetailC
 
         currentNote.setLocationLat(loc.getLatitude());
         currentNote.setLocationLng(loc.getLongitude());
-        noteManager.updateNote(currentNote);
+        noteManager.setLocation(noteId, loc.getLatitude(), loc.getLongitude(), null);
         updateLocationUI();
     }
 
@@ -410,7 +445,7 @@ public class NoteDetailActivity extends AppCompatActivity implements NoteDetailC
 
         currentNote.setLocationLat(null);
         currentNote.setLocationLng(null);
-        noteManager.updateNote(currentNote);
+        noteManager.setLocation(noteId, null, null, null);
         updateLocationUI();
     }
 
@@ -4,6 +4,7 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 
+import com.example.anchornotes.data.DatabaseExecutor;
 import com.example.anchornotes.data.NotificationService;
 import com.example.anchornotes.domain.ReminderManager;
 
@@ -36,11 +37,22 @@ public class ReminderReceiver extends BroadcastReceiver {
             }
         }
 
-        // Let the domain layer handle this time-based reminder event
+        // Let the domain layer handle this time-based reminder event.
+        // It writes to the database, so run it in the background and keep
+        // the broadcast alive until it's done.
         if (noteId != null) {
-            ReminderManager reminderManager = new ReminderManager(context);
-            // <-- changed to domain-level handler per design
-            reminderManager.handleTimeReminderFired(noteId);
+            final UUID firedNoteId = noteId;
+            PendingResult pendingResult = goAsync();
+            Context appContext = context.getApplicationContext();
+            DatabaseExecutor.execute(() -> {
+                try {
+                    ReminderManager reminderManager = new ReminderManager(appContext);
+                    // <-- changed to domain-level handler per design
+                    reminderManager.handleTimeReminderFired(firedNoteId);
+                } finally {
+                    pendingResult.finish();
+                }
+            });
         }
 
         // Show notification via NotificationService
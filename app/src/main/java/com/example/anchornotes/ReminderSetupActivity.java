@@ -9,6 +9,7 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.anchornotes.data.DatabaseExecutor;
 import com.example.anchornotes.domain.ReminderController;
 
 import java.util.Calendar;
@@ -80,7 +81,8 @@ public class ReminderSetupActivity extends AppCompatActivity {
 
     /**
      * Convert the chosen millis to a Date and ask ReminderController to
-     * create the time-based reminder for this note.
+     * create the time-based reminder for this note (in the background),
+     * then report the result and finish.
      */
     private void finishWithTriggerTime(long triggerMillis) {
         if (noteId == null) {
@@ -91,8 +93,13 @@ public class ReminderSetupActivity extends AppCompatActivity {
         }
 
         Date triggerTime = new Date(triggerMillis);
-        boolean success = reminderController.addTimeReminderAt(noteId, triggerTime);
+        DatabaseExecutor.submit(
+                () -> reminderController.addTimeReminderAt(noteId, triggerTime),
+                success -> onReminderResult(success, triggerMillis)
+        );
+    }
 
+    private void onReminderResult(boolean success, long triggerMillis) {
         if (success) {
             Toast.makeText(this, "Time reminder set", Toast.LENGTH_SHORT).show();
             // Optionally signal success to caller
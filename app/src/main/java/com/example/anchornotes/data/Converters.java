@@ -2,23 +2,33 @@ package com.example.anchornotes.data;
 
 import androidx.room.TypeConverter;
 
+import java.nio.ByteBuffer;
 import java.util.Date;
 import java.util.UUID;
 
 public class Converters {
 
-    // ---------- UUID <-> String ----------
+    // ---------- UUID <-> BLOB ----------
+    // Stored as 16 raw bytes (most significant long first) instead of the
+    // 36-char string: smaller rows/indexes and no string parsing on read.
 
     @TypeConverter
-    public static UUID fromStringToUUID(String value) {
-        if (value == null) return null;
-        return UUID.fromString(value);
+    public static UUID fromBytesToUUID(byte[] bytes) {
+        if (bytes == null) return null;
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("UUID blob must be 16 bytes, got " + bytes.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
     }
 
     @TypeConverter
-    public static String fromUUIDToString(UUID uuid) {
+    public static byte[] fromUUIDToBytes(UUID uuid) {
         if (uuid == null) return null;
-        return uuid.toString();
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
     }
 
     // ---------- Date <-> Long ----------
@@ -0,0 +1,113 @@
+package com.example.anchornotes.data;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tells screens which tables changed, using Room's InvalidationTracker.
+ *
+ * One observer is registered for the lifetime of the process. It keeps a
+ * version counter per table, so a screen can compare versions when it
+ * comes back to the foreground and skip its query if nothing it shows has
+ * changed, and it notifies listeners (on the main thread) while they are
+ * registered.
+ */
+public final class DatabaseChanges {
+
+    public static final String NOTES = "notes";
+    public static final String NOTE_BODIES = "note_bodies";
+    public static final String REMINDERS = "reminders";
+    public static final String TAGS = "tags";
+    public static final String NOTE_TAGS = "note_tags";
+
+    /** Called on the main thread after one of the listened-to tables changed. */
+    public interface Listener {
+        void onTablesChanged();
+    }
+
+    private static final class Registration {
+        final Listener listener;
+        final String[] tables;
+
+        Registration(Listener listener, String[] tables) {
+            this.listener = listener;
+            this.tables = tables;
+        }
+    }
+
+    private static volatile DatabaseChanges instance;
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Registration> registrations = new CopyOnWriteArrayList<>();
+
+    private DatabaseChanges(LocalDatabase db) {
+        String[] tables = {NOTES, NOTE_BODIES, REMINDERS, TAGS, NOTE_TAGS};
+        for (String table : tables) {
+            versions.put(table, new AtomicLong());
+        }
+        db.getInvalidationTracker().addObserver(new InvalidationTracker.Observer(tables) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> changed) {
+                for (String table : changed) {
+                    AtomicLong version = versions.get(table);
+                    if (version != null) version.incrementAndGet();
+                }
+                DatabaseExecutor.postToMain(() -> notifyListeners(changed));
+            }
+        });
+    }
+
+    public static DatabaseChanges getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DatabaseChanges.class) {
+                if (instance == null) {
+                    instance = new DatabaseChanges(
+                            LocalDatabase.getInstance(context.getApplicationContext()));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /** Combined version of these tables; changes whenever any of them is written. */
+    public long version(String... tables) {
+        long sum = 0;
+        for (String table : tables) {
+            AtomicLong version = versions.get(table);
+            if (version != null) sum += version.get();
+        }
+        return sum;
+    }
+
+    /** Start notifying the listener about writes to these tables. */
+    public void addListener(Listener listener, String... tables) {
+        registrations.add(new Registration(listener, tables));
+    }
+
+    public void removeListener(Listener listener) {
+        for (Registration r : registrations) {
+            if (r.listener == listener) {
+                registrations.remove(r);
+            }
+        }
+    }
+
+    private void notifyListeners(Set<String> changed) {
+        for (Registration r : registrations) {
+            for (String table : r.tables) {
+                if (changed.contains(table)) {
+                    r.listener.onTablesChanged();
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.anchornotes.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Background executor for all database work.
+ *
+ * Room refuses main-thread queries, so anything that touches a repository
+ * (directly or through a domain manager) must run here. Results can be
+ * handed back on the main looper for UI updates.
+ *
+ * A single thread keeps writes ordered: a save followed by a reload always
+ * sees the save. The database runs in WAL mode, so read-only queries that
+ * should not wait behind a burst of writes (list pages, counts) can go to
+ * a separate small reader pool via submitRead(). A read there does not
+ * wait for writes still queued on the main executor, so only use it where
+ * a slightly older snapshot is fine.
+ */
+public final class DatabaseExecutor {
+
+    private static final String TAG = "DatabaseExecutor";
+
+    /** Receives a background result on the main thread. */
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    private static final ExecutorService IO = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "anchornotes-db");
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+
+    /** Parallel read-only queries; WAL lets these run while a write is open. */
+    private static final int READER_THREADS = 2;
+
+    private static final ExecutorService READERS = Executors.newFixedThreadPool(READER_THREADS, r -> {
+        Thread t = new Thread(r, "anchornotes-db-read");
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private DatabaseExecutor() { }
+
+    /** Run database work in the background, fire-and-forget. */
+    public static void execute(Runnable task) {
+        IO.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                Log.e(TAG, "Background database task failed", ex);
+            }
+        });
+    }
+
+    /** Run database work in the background and get a Future for its result. */
+    public static <T> Future<T> submit(Callable<T> task) {
+        return IO.submit(task);
+    }
+
+    /**
+     * Run database work in the background and deliver its result on the main
+     * thread. If the task throws, the error is logged and the callback is
+     * not called.
+     */
+    public static <T> void submit(Callable<T> task, @Nullable Callback<T> callback) {
+        IO.execute(() -> {
+            T result;
+            try {
+                result = task.call();
+            } catch (Exception ex) {
+                Log.e(TAG, "Background database task failed", ex);
+                return;
+            }
+            if (callback != null) {
+                MAIN.post(() -> callback.onResult(result));
+            }
+        });
+    }
+
+    /**
+     * Like submit(task, callback), but on the reader pool, so the query is
+     * not stuck behind queued writes. The task must not write.
+     */
+    public static <T> void submitRead(Callable<T> task, @Nullable Callback<T> callback) {
+        submitRead(task, callback, null);
+    }
+
+    /**
+     * Like submitRead(task, callback), but if the task throws, onError gets
+     * the exception on the main thread (it is logged either way).
+     */
+    public static <T> void submitRead(Callable<T> task, @Nullable Callback<T> callback,
+                                      @Nullable Callback<Exception> onError) {
+        READERS.execute(() -> {
+            T result;
+            try {
+                result = task.call();
+            } catch (Exception ex) {
+                Log.e(TAG, "Background database read failed", ex);
+                if (onError != null) {
+                    MAIN.post(() -> onError.onResult(ex));
+                }
+                return;
+            }
+            if (callback != null) {
+                MAIN.post(() -> callback.onResult(result));
+            }
+        });
+    }
+
+    /** Run database work in the background, then run onDone on the main thread. */
+    public static void execute(Runnable task, @Nullable Runnable onDone) {
+        submit(() -> {
+            task.run();
+            return null;
+        }, onDone != null ? ignored -> onDone.run() : null);
+    }
+
+    /** Like execute(task), but queued only after delayMillis have passed. */
+    public static void executeDelayed(Runnable task, long delayMillis) {
+        MAIN.postDelayed(() -> execute(task), delayMillis);
+    }
+
+    /** Post to the main thread (for code already running in the background). */
+    public static void postToMain(Runnable task) {
+        MAIN.post(task);
+    }
+}
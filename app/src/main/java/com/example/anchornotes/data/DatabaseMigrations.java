@@ -0,0 +1,539 @@
+package com.example.anchornotes.data;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Schema migrations for LocalDatabase, so upgrades keep the user's notes.
+ *
+ * The CREATE statements here mirror what Room generates for the entities
+ * at the target version (see the exported JSON under app/schemas); Room
+ * validates the result after migrating. Room runs the whole upgrade in
+ * one transaction, so a large one holds up the first open until it is
+ * done; that open happens on DatabaseExecutor, never on the main thread.
+ * Bulk steps walk tables in rowid ranges, which keeps each query's cursor
+ * small but does not split the transaction.
+ *
+ * SQL here is frozen per version: don't reuse DAO query constants, which
+ * describe the latest schema.
+ */
+public final class DatabaseMigrations {
+
+    /** Rows read per query when a bulk step walks a table. */
+    static final int COPY_BATCH_SIZE = 500;
+
+    private static final String TAG = "DatabaseMigrations";
+
+    private DatabaseMigrations() { }
+
+    // ------------------------------------------------------------------------
+    // 3 -> 4: notes_fts full-text index
+    // ------------------------------------------------------------------------
+
+    public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `notes_fts` USING FTS4(" +
+                    "`title` TEXT, `content` TEXT, `tags` TEXT, " +
+                    "tokenize=unicode61, prefix=`2,3`)");
+
+            // Backfill in rowid ranges, one INSERT ... SELECT per range
+            forEachRowIdRange(db, "notes", (from, to) -> db.execSQL(
+                    "INSERT INTO notes_fts(rowid, title, content, tags) " +
+                    "SELECT n.rowid, n.title, n.content, " +
+                    "(SELECT group_concat(t.name, ' ') FROM note_tags nt " +
+                    "INNER JOIN tags t ON t.id = nt.tagId " +
+                    "WHERE nt.noteId = n.id) " +
+                    "FROM notes n WHERE n.rowid >= ? AND n.rowid < ?",
+                    new Object[]{from, to}));
+        }
+    };
+
+    // ------------------------------------------------------------------------
+    // 4 -> 5: secondary indexes
+    // ------------------------------------------------------------------------
+
+    public static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_updatedAt` " +
+                    "ON `notes` (`updatedAt`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_pinned_updatedAt_id` " +
+                    "ON `notes` (`pinned`, `updatedAt`, `id`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_reminders_noteId` " +
+                    "ON `reminders` (`noteId`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_note_tags_tagId` " +
+                    "ON `note_tags` (`tagId`)");
+        }
+    };
+
+    // ------------------------------------------------------------------------
+    // 5 -> 6: UUID columns stored as 16-byte BLOBs instead of TEXT
+    // ------------------------------------------------------------------------
+
+    public static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            rebuildTable(db, "notes",
+                    "CREATE TABLE IF NOT EXISTS `notes_new` (" +
+                            "`id` BLOB NOT NULL, `title` TEXT, `content` TEXT, " +
+                            "`createdAt` INTEGER, `updatedAt` INTEGER, `reminderId` BLOB, " +
+                            "`pinned` INTEGER NOT NULL, `locationLat` REAL, `locationLng` REAL, " +
+                            "`photoUri` TEXT, `audioUri` TEXT, " +
+                            "`lastRelevantTriggeredAt` INTEGER, `relevantType` TEXT, " +
+                            "PRIMARY KEY(`id`))",
+                    uuidColumns("id", "reminderId"));
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_updatedAt` " +
+                    "ON `notes` (`updatedAt`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_pinned_updatedAt_id` " +
+                    "ON `notes` (`pinned`, `updatedAt`, `id`)");
+
+            rebuildTable(db, "reminders",
+                    "CREATE TABLE IF NOT EXISTS `reminders_new` (" +
+                            "`id` BLOB NOT NULL, `noteId` BLOB NOT NULL, `type` TEXT, " +
+                            "`triggerTime` INTEGER, `locationLat` REAL, `locationLng` REAL, " +
+                            "`radiusMeters` REAL, `isActive` INTEGER NOT NULL, " +
+                            "`retiredAt` INTEGER, " +
+                            "PRIMARY KEY(`id`))",
+                    uuidColumns("id", "noteId"));
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_reminders_noteId` " +
+                    "ON `reminders` (`noteId`)");
+
+            rebuildTable(db, "tags",
+                    "CREATE TABLE IF NOT EXISTS `tags_new` (" +
+                            "`id` BLOB NOT NULL, `name` TEXT, " +
+                            "PRIMARY KEY(`id`))",
+                    uuidColumns("id"));
+
+            rebuildTable(db, "note_tags",
+                    "CREATE TABLE IF NOT EXISTS `note_tags_new` (" +
+                            "`noteId` BLOB NOT NULL, `tagId` BLOB NOT NULL, " +
+                            "PRIMARY KEY(`noteId`, `tagId`))",
+                    uuidColumns("noteId", "tagId"));
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_note_tags_tagId` " +
+                    "ON `note_tags` (`tagId`)");
+
+            // notes_fts rows are keyed by notes.rowid, which rebuildTable keeps,
+            // so the search index stays valid as-is.
+        }
+    };
+
+    // ------------------------------------------------------------------------
+    // 6 -> 7: out-of-row storage for long note bodies
+    // ------------------------------------------------------------------------
+
+    public static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `bodyExternal` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `note_bodies` (" +
+                    "`noteId` BLOB NOT NULL, `codec` INTEGER NOT NULL, `data` BLOB, " +
+                    "PRIMARY KEY(`noteId`))");
+
+            // Move bodies that are already long out of row, a rowid range at
+            // a time. notes_fts already holds their full text, so it is left
+            // as it is.
+            SupportSQLiteStatement insertBody = db.compileStatement(
+                    "INSERT OR REPLACE INTO `note_bodies` (noteId, codec, data) VALUES (?, ?, ?)");
+            SupportSQLiteStatement keepHead = db.compileStatement(
+                    "UPDATE `notes` SET content = ?, bodyExternal = 1 WHERE rowid = ?");
+            try {
+                forEachRowIdRange(db, "notes", (from, to) -> {
+                    try (Cursor c = db.query("SELECT rowid, id, content FROM `notes` " +
+                                    "WHERE rowid >= ? AND rowid < ? AND length(content) > ?",
+                            new Object[]{from, to, NoteBody.INLINE_LIMIT})) {
+                        while (c.moveToNext()) {
+                            String content = c.getString(2);
+                            NoteBody body = NoteBody.encode(
+                                    Converters.fromBytesToUUID(c.getBlob(1)), content);
+
+                            insertBody.clearBindings();
+                            insertBody.bindBlob(1, c.getBlob(1));
+                            insertBody.bindLong(2, body.getCodec());
+                            insertBody.bindBlob(3, body.getData());
+                            insertBody.executeInsert();
+
+                            keepHead.clearBindings();
+                            keepHead.bindString(1, NoteBody.headOf(content));
+                            keepHead.bindLong(2, c.getLong(0));
+                            keepHead.executeUpdateDelete();
+                        }
+                    }
+                });
+            } finally {
+                close(insertBody, keepHead);
+            }
+        }
+    };
+
+    // ------------------------------------------------------------------------
+    // 7 -> 8: trigram index for fuzzy search
+    // ------------------------------------------------------------------------
+
+    public static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `note_trigrams` (" +
+                    "`gram` INTEGER NOT NULL, `noteRowId` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`gram`, `noteRowId`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_note_trigrams_noteRowId` " +
+                    "ON `note_trigrams` (`noteRowId`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `tag_trigrams` (" +
+                    "`gram` INTEGER NOT NULL, `tagId` BLOB NOT NULL, " +
+                    "PRIMARY KEY(`gram`, `tagId`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_tag_trigrams_tagId` " +
+                    "ON `tag_trigrams` (`tagId`)");
+
+            // Grams are cut in Java (Trigrams), so the backfill reads each
+            // note's full text, including out-of-row bodies
+            SupportSQLiteStatement insertNoteGram = db.compileStatement(
+                    "INSERT OR IGNORE INTO `note_trigrams` (gram, noteRowId) VALUES (?, ?)");
+            try {
+                forEachRowIdRange(db, "notes", (from, to) -> {
+                    try (Cursor c = db.query("SELECT n.rowid, n.id, n.title, n.content, " +
+                                    "b.codec, b.data FROM `notes` n " +
+                                    "LEFT JOIN `note_bodies` b ON b.noteId = n.id " +
+                                    "WHERE n.rowid >= ? AND n.rowid < ?",
+                            new Object[]{from, to})) {
+                        while (c.moveToNext()) {
+                            String content = c.getString(3);
+                            if (!c.isNull(4)) {
+                                String full = new NoteBody(Converters.fromBytesToUUID(c.getBlob(1)),
+                                        c.getInt(4), c.getBlob(5)).decode();
+                                if (full != null) content = full;
+                            }
+                            for (long gram : Trigrams.of(c.getString(2), content)) {
+                                insertNoteGram.clearBindings();
+                                insertNoteGram.bindLong(1, gram);
+                                insertNoteGram.bindLong(2, c.getLong(0));
+                                insertNoteGram.executeInsert();
+                            }
+                        }
+                    }
+                });
+            } finally {
+                close(insertNoteGram);
+            }
+
+            insertTagTrigrams(db);
+        }
+    };
+
+    // ------------------------------------------------------------------------
+    // 8 -> 10: locale collation keys for title sorting, trigrams re-cut from
+    // folded text. Version 9 (a normalized title column, superseded by the
+    // collation keys before release) is skipped.
+    // ------------------------------------------------------------------------
+
+    public static final Migration MIGRATION_8_10 = new Migration(8, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            // Rowids are kept, so notes_fts and note_trigrams stay valid
+            db.execSQL("ALTER TABLE `notes` ADD COLUMN `titleSortKey` BLOB");
+
+            // Keys for the current locale, which is reported to TitleSortKeys
+            // so it doesn't re-key on first open; it does if the locale changes.
+            // Trigrams are now cut from folded text; only notes with
+            // non-ASCII text come out differently.
+            String localeTag = Locale.getDefault().toLanguageTag();
+            SupportSQLiteStatement setKey = db.compileStatement(
+                    "UPDATE `notes` SET titleSortKey = ? WHERE rowid = ?");
+            SupportSQLiteStatement deleteGrams = db.compileStatement(
+                    "DELETE FROM `note_trigrams` WHERE noteRowId = ?");
+            SupportSQLiteStatement insertGram = db.compileStatement(
+                    "INSERT OR IGNORE INTO `note_trigrams` (gram, noteRowId) VALUES (?, ?)");
+            try {
+                forEachRowIdRange(db, "notes", (from, to) -> {
+                    try (Cursor c = db.query("SELECT n.rowid, n.id, n.title, n.content, " +
+                                    "b.codec, b.data FROM `notes` n " +
+                                    "LEFT JOIN `note_bodies` b ON b.noteId = n.id " +
+                                    "WHERE n.rowid >= ? AND n.rowid < ?",
+                            new Object[]{from, to})) {
+                        while (c.moveToNext()) {
+                            long rowId = c.getLong(0);
+                            String title = c.getString(2);
+
+                            setKey.clearBindings();
+                            setKey.bindBlob(1, TitleSortKeys.of(title));
+                            setKey.bindLong(2, rowId);
+                            setKey.executeUpdateDelete();
+
+                            String content = c.getString(3);
+                            if (!c.isNull(4)) {
+                                String full = new NoteBody(Converters.fromBytesToUUID(c.getBlob(1)),
+                                        c.getInt(4), c.getBlob(5)).decode();
+                                if (full != null) content = full;
+                            }
+                            if (!TextNormalizer.needsFolding(title)
+                                    && !TextNormalizer.needsFolding(content)) {
+                                continue;
+                            }
+                            deleteGrams.bindLong(1, rowId);
+                            deleteGrams.executeUpdateDelete();
+                            for (long gram : Trigrams.of(title, content)) {
+                                insertGram.clearBindings();
+                                insertGram.bindLong(1, gram);
+                                insertGram.bindLong(2, rowId);
+                                insertGram.executeInsert();
+                            }
+                        }
+                    }
+                });
+            } finally {
+                close(setKey, deleteGrams, insertGram);
+            }
+
+            // Tags are few: re-cut all of them
+            db.execSQL("DELETE FROM `tag_trigrams`");
+            insertTagTrigrams(db);
+
+            // Indexes after the backfill, so it doesn't update them row by row
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_title_asc` " +
+                    "ON `notes` (`pinned` DESC, `titleSortKey` ASC, `id` DESC)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_notes_title_desc` " +
+                    "ON `notes` (`pinned` DESC, `titleSortKey` DESC, `id` DESC)");
+
+            // Only taken as fact once the upgrade has committed (onDatabaseOpened)
+            TitleSortKeys.keysBuiltFor(localeTag);
+        }
+    };
+
+    // ------------------------------------------------------------------------
+    // 10 -> 11: CJK bigram column in notes_fts
+    // ------------------------------------------------------------------------
+
+    public static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            // FTS4 tables can't take a new column, so the index is rebuilt.
+            // Rows are copied from the old index, which already holds every
+            // note's full text (out-of-row bodies included) and its tags.
+            db.execSQL("DROP TABLE IF EXISTS `notes_fts_new`");
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `notes_fts_new` USING FTS4(" +
+                    "`title` TEXT, `content` TEXT, `tags` TEXT, `cjk` TEXT, " +
+                    "tokenize=unicode61, prefix=`2,3`)");
+
+            SupportSQLiteStatement insert = db.compileStatement(
+                    "INSERT INTO `notes_fts_new` (rowid, title, content, tags, cjk) " +
+                    "VALUES (?, ?, ?, ?, ?)");
+            // notes_fts shares its rowids with notes, whose range is cheap to read
+            try {
+                forEachRowIdRange(db, "notes", (from, to) -> {
+                    try (Cursor c = db.query("SELECT rowid, title, content, tags FROM `notes_fts` " +
+                                    "WHERE rowid >= ? AND rowid < ?",
+                            new Object[]{from, to})) {
+                        while (c.moveToNext()) {
+                            insert.clearBindings();
+                            insert.bindLong(1, c.getLong(0));
+                            for (int i = 1; i <= 3; i++) {
+                                if (!c.isNull(i)) insert.bindString(i + 1, c.getString(i));
+                            }
+                            String cjk = SearchTokenizer.cjkIndexText(c.getString(1), c.getString(2));
+                            if (cjk != null) insert.bindString(5, cjk);
+                            insert.executeInsert();
+                        }
+                    }
+                });
+            } finally {
+                close(insert);
+            }
+
+            db.execSQL("DROP TABLE `notes_fts`");
+            db.execSQL("ALTER TABLE `notes_fts_new` RENAME TO `notes_fts`");
+        }
+    };
+
+    /** Every migration, oldest first, for Room.databaseBuilder().addMigrations(). */
+    public static final Migration[] ALL = {
+            MIGRATION_3_4,
+            MIGRATION_4_5,
+            MIGRATION_5_6,
+            MIGRATION_6_7,
+            MIGRATION_7_8,
+            MIGRATION_8_10,
+            MIGRATION_10_11
+    };
+
+    // ------------------------------------------------------------------------
+    // Helpers
+    // ------------------------------------------------------------------------
+
+    interface RowIdRangeAction {
+        /** Handle rows with from <= rowid < to. */
+        void run(long from, long to);
+    }
+
+    /**
+     * Walk a table's rowid space in COPY_BATCH_SIZE-wide ranges, so each
+     * query in a bulk step reads a bounded number of rows. All ranges run
+     * in the migration's transaction.
+     */
+    static void forEachRowIdRange(SupportSQLiteDatabase db, String table,
+                                  RowIdRangeAction action) {
+        long min;
+        long max;
+        try (Cursor c = db.query("SELECT MIN(rowid), MAX(rowid) FROM `" + table + "`")) {
+            if (!c.moveToFirst() || c.isNull(0)) {
+                return; // empty table
+            }
+            min = c.getLong(0);
+            max = c.getLong(1);
+        }
+
+        for (long from = min; from <= max; from += COPY_BATCH_SIZE) {
+            action.run(from, from + COPY_BATCH_SIZE);
+        }
+    }
+
+    /** Cut and insert trigrams for every tag name into tag_trigrams. */
+    private static void insertTagTrigrams(SupportSQLiteDatabase db) {
+        SupportSQLiteStatement insertTagGram = db.compileStatement(
+                "INSERT OR IGNORE INTO `tag_trigrams` (gram, tagId) VALUES (?, ?)");
+        try (Cursor c = db.query("SELECT id, name FROM `tags`")) {
+            while (c.moveToNext()) {
+                for (long gram : Trigrams.of(c.getString(1))) {
+                    insertTagGram.clearBindings();
+                    insertTagGram.bindLong(1, gram);
+                    insertTagGram.bindBlob(2, c.getBlob(0));
+                    insertTagGram.executeInsert();
+                }
+            }
+        } finally {
+            close(insertTagGram);
+        }
+    }
+
+    /**
+     * Release compiled statements (also used by TitleSortKeys). Their
+     * close() is declared to throw IOException, but the framework's
+     * doesn't; one that somehow does must not fail work already done.
+     */
+    static void close(SupportSQLiteStatement... statements) {
+        for (SupportSQLiteStatement statement : statements) {
+            try {
+                statement.close();
+            } catch (IOException ex) {
+                Log.w(TAG, "Closing a compiled statement failed", ex);
+            }
+        }
+    }
+
+    private static Set<String> uuidColumns(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    /**
+     * Recreate a table with a new definition: create "<table>_new", copy the
+     * rows across a rowid-ordered batch per query (rowids are kept), drop the old
+     * table and rename the new one into place. Indexes must be recreated by
+     * the caller afterwards. Only columns present in both definitions are
+     * copied, so a column left out of the new one is dropped and a new one
+     * starts at its default.
+     *
+     * @param createNewSql CREATE TABLE statement for "<table>_new"
+     * @param uuidColumns  TEXT UUID columns to convert to 16-byte BLOBs
+     */
+    static void rebuildTable(SupportSQLiteDatabase db,
+                             String table,
+                             String createNewSql,
+                             Set<String> uuidColumns) {
+        String newTable = table + "_new";
+        db.execSQL("DROP TABLE IF EXISTS `" + newTable + "`");
+        db.execSQL(createNewSql);
+
+        List<String> columns = columnsOf(db, table);
+        columns.retainAll(columnsOf(db, newTable));
+        StringBuilder columnList = new StringBuilder("rowid");
+        StringBuilder placeholders = new StringBuilder("?");
+        for (String column : columns) {
+            columnList.append(", `").append(column).append('`');
+            placeholders.append(", ?");
+        }
+
+        SupportSQLiteStatement insert = db.compileStatement(
+                "INSERT INTO `" + newTable + "` (" + columnList + ") " +
+                "VALUES (" + placeholders + ")");
+        String select = "SELECT " + columnList + " FROM `" + table + "` " +
+                "WHERE rowid > ? ORDER BY rowid LIMIT " + COPY_BATCH_SIZE;
+
+        try {
+            long lastRowId = Long.MIN_VALUE;
+            boolean more = true;
+            while (more) {
+                int copied = 0;
+                try (Cursor c = db.query(select, new Object[]{lastRowId})) {
+                    while (c.moveToNext()) {
+                        insert.clearBindings();
+                        lastRowId = c.getLong(0);
+                        insert.bindLong(1, lastRowId);
+                        for (int i = 0; i < columns.size(); i++) {
+                            bindColumn(insert, i + 2, c, i + 1,
+                                    uuidColumns.contains(columns.get(i)));
+                        }
+                        insert.executeInsert();
+                        copied++;
+                    }
+                }
+                more = copied == COPY_BATCH_SIZE;
+            }
+        } finally {
+            close(insert);
+        }
+
+        db.execSQL("DROP TABLE `" + table + "`");
+        db.execSQL("ALTER TABLE `" + newTable + "` RENAME TO `" + table + "`");
+    }
+
+    private static List<String> columnsOf(SupportSQLiteDatabase db, String table) {
+        List<String> columns = new ArrayList<>();
+        try (Cursor c = db.query("PRAGMA table_info(`" + table + "`)")) {
+            int nameIndex = c.getColumnIndexOrThrow("name");
+            while (c.moveToNext()) {
+                columns.add(c.getString(nameIndex));
+            }
+        }
+        return columns;
+    }
+
+    private static void bindColumn(SupportSQLiteStatement statement, int bindIndex,
+                                   Cursor c, int columnIndex, boolean isUuid) {
+        switch (c.getType(columnIndex)) {
+            case Cursor.FIELD_TYPE_NULL:
+                statement.bindNull(bindIndex);
+                break;
+            case Cursor.FIELD_TYPE_INTEGER:
+                statement.bindLong(bindIndex, c.getLong(columnIndex));
+                break;
+            case Cursor.FIELD_TYPE_FLOAT:
+                statement.bindDouble(bindIndex, c.getDouble(columnIndex));
+                break;
+            case Cursor.FIELD_TYPE_BLOB:
+                statement.bindBlob(bindIndex, c.getBlob(columnIndex));
+                break;
+            case Cursor.FIELD_TYPE_STRING:
+            default:
+                String value = c.getString(columnIndex);
+                if (isUuid) {
+                    statement.bindBlob(bindIndex,
+                            Converters.fromUUIDToBytes(UUID.fromString(value)));
+                } else {
+                    statement.bindString(bindIndex, value);
+                }
+                break;
+        }
+    }
+}
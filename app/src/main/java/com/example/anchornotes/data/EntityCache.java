@@ -0,0 +1,115 @@
+package com.example.anchornotes.data;
+
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Small in-memory LRU of notes (by id) and reminders (by note id), shared by
+ * every NoteRepository instance, so repeated lookups of the same note (a
+ * reminder firing, the detail screen, a receiver needing the title) don't
+ * each hit SQLite.
+ *
+ * Write paths evict what they touched after the write. Each lookup also
+ * remembers the write generation it started in and only fills the cache if
+ * no write happened meanwhile, so a read racing a write can't put the old
+ * row back.
+ *
+ * Lookups hand out copies: callers may change what they get (and write it
+ * back through the repository, which evicts it) without changing what the
+ * next caller sees.
+ */
+final class EntityCache {
+
+    static final int MAX_NOTES = 64;
+    static final int MAX_REMINDERS = 64;
+
+    /** Cache slot; reminder lookups that found nothing are cached too. */
+    private static final class Entry<T> {
+        @Nullable final T value;
+
+        Entry(@Nullable T value) {
+            this.value = value;
+        }
+    }
+
+    /** Reads the row from the database on a miss. */
+    interface Loader<T> {
+        @Nullable T load();
+    }
+
+    private static final EntityCache INSTANCE = new EntityCache();
+
+    private final LruCache<UUID, Entry<Note>> notes = new LruCache<>(MAX_NOTES);
+    private final LruCache<UUID, Entry<Reminder>> remindersByNote = new LruCache<>(MAX_REMINDERS);
+
+    // Bumped by every eviction; guarded by this together with the fills
+    private long writeGeneration;
+
+    private EntityCache() { }
+
+    static EntityCache getInstance() {
+        return INSTANCE;
+    }
+
+    Note getNote(UUID id, Loader<Note> load) {
+        Note note = get(notes, id, load);
+        return note != null ? new Note(note) : null;
+    }
+
+    Reminder getReminderForNote(UUID noteId, Loader<Reminder> load) {
+        Reminder reminder = get(remindersByNote, noteId, load);
+        return reminder != null ? new Reminder(reminder) : null;
+    }
+
+    /** A note row changed or went away (its reminder entry is kept). */
+    synchronized void evictNote(@Nullable UUID id) {
+        if (id == null) return;
+        writeGeneration++;
+        notes.remove(id);
+    }
+
+    /** The note's reminder changed; the note row may have too (reminderId). */
+    synchronized void evictNoteAndReminder(@Nullable UUID noteId) {
+        if (noteId == null) return;
+        writeGeneration++;
+        notes.remove(noteId);
+        remindersByNote.remove(noteId);
+    }
+
+    synchronized void evictNotesAndReminders(Collection<UUID> noteIds) {
+        writeGeneration++;
+        for (UUID id : noteIds) {
+            notes.remove(id);
+            remindersByNote.remove(id);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "notes=" + notes + " reminders=" + remindersByNote;
+    }
+
+    private <T> T get(LruCache<UUID, Entry<T>> cache, UUID key, Loader<T> load) {
+        Entry<T> entry = cache.get(key);
+        if (entry != null) {
+            return entry.value;
+        }
+
+        long generation;
+        synchronized (this) {
+            generation = writeGeneration;
+        }
+        // Outside the lock: a slow query must not hold up evictions
+        T value = load.load();
+        synchronized (this) {
+            if (generation == writeGeneration) {
+                cache.put(key, new Entry<>(value));
+            }
+        }
+        return value;
+    }
+}
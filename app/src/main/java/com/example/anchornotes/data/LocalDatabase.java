@@ -1,45 +1,123 @@
 package com.example.anchornotes.data;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 @Database(
         entities = {
                 Note.class,
                 Reminder.class,
                 Tag.class,
-                NoteTag.class
+                NoteTag.class,
+                NoteFts.class,
+                NoteBody.class,
+                NoteTrigram.class,
+                TagTrigram.class
         },
-        version = 3,           // ⬅ IMPORTANT: bump version (2 → 3)
-        exportSchema = false
+        version = 11,          // 11: CJK bigram column in the search index (notes_fts.cjk)
+        exportSchema = true    // app/schemas, used by migration tests
 )
 @TypeConverters({Converters.class})
 public abstract class LocalDatabase extends RoomDatabase {
 
+    private static final String TAG = "LocalDatabase";
+
+    /** Page cache of the writer connection, in KiB (SQLite's default is about 2 MB). */
+    public static final int DEFAULT_CACHE_SIZE_KB = 8 * 1024;
+
+    /** Memory-mapped I/O window of the writer connection in bytes; 0 turns it off. */
+    public static final long DEFAULT_MMAP_SIZE_BYTES = 32L * 1024 * 1024;
+
     private static volatile LocalDatabase INSTANCE;
 
+    private static volatile int cacheSizeKb = DEFAULT_CACHE_SIZE_KB;
+    private static volatile long mmapSizeBytes = DEFAULT_MMAP_SIZE_BYTES;
+
     public abstract NoteDao noteDao();
     public abstract TagDao tagDao();   // ⬅ NEW
 
+    /**
+     * Override the writer connection tuning. Takes effect for databases
+     * opened afterwards, so call it before the first getInstance().
+     */
+    public static void setTuning(int cacheSizeKb, long mmapSizeBytes) {
+        LocalDatabase.cacheSizeKb = cacheSizeKb;
+        LocalDatabase.mmapSizeBytes = mmapSizeBytes;
+    }
+
     public static LocalDatabase getInstance(Context context) {
         if (INSTANCE == null) {
             synchronized (LocalDatabase.class) {
                 if (INSTANCE == null) {
-                    INSTANCE = Room.databaseBuilder(
-                                    context.getApplicationContext(),
-                                    LocalDatabase.class,
-                                    "anchornotes.db"
-                            )
-                            .allowMainThreadQueries() // OK for this class project
-                            .fallbackToDestructiveMigration() // wipe + recreate on schema change
-                            .build();
+                    INSTANCE = build(context.getApplicationContext(), "anchornotes.db");
                 }
             }
         }
         return INSTANCE;
     }
+
+    /** The production configuration; package-private so tests can open a copy under another name. */
+    static LocalDatabase build(Context context, String name) {
+        return Room.databaseBuilder(context, LocalDatabase.class, name)
+                // No allowMainThreadQueries(): all access goes through DatabaseExecutor
+                // Every upgrade from version 3 on is an explicit migration;
+                // a missing one fails loudly instead of wiping notes.
+                .addMigrations(DatabaseMigrations.ALL)
+                // WAL: readers keep going while a reminder write is open
+                .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                .addCallback(TUNING_CALLBACK)
+                .addCallback(SORT_KEYS_CALLBACK)
+                .build();
+    }
+
+    /**
+     * Connection PRAGMAs, applied whenever the database is opened. They land
+     * on the primary (writer) connection only: the framework opens WAL
+     * reader connections inside its own pool, with no hook to configure
+     * them, so reads on submitRead() run with SQLite's default cache_size
+     * and mmap_size. That is deliberate rather than a gap: the writer is
+     * where bulk reminder writes build a large working set, while list
+     * pages touch a few index pages each. WalConcurrencyTest measures a
+     * bulk write with and without this tuning.
+     * synchronous=NORMAL is safe in WAL mode (a crash can lose the last
+     * commits but never corrupts the file) and avoids an fsync per commit;
+     * only the writer commits, so it is the only connection it matters on.
+     */
+    private static final Callback TUNING_CALLBACK = new Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            pragma(db, "PRAGMA synchronous = NORMAL");
+            // Negative cache_size is in KiB rather than pages
+            pragma(db, "PRAGMA cache_size = -" + cacheSizeKb);
+            pragma(db, "PRAGMA mmap_size = " + mmapSizeBytes);
+        }
+    };
+
+    /**
+     * onOpen runs after an upgrade has committed, so this is where a
+     * migration's sort key locale becomes safe to store (see TitleSortKeys).
+     */
+    private static final Callback SORT_KEYS_CALLBACK = new Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            TitleSortKeys.onDatabaseOpened();
+        }
+    };
+
+    private static void pragma(SupportSQLiteDatabase db, String sql) {
+        // Some PRAGMAs return a row, so run them as queries rather than execSQL
+        try (Cursor c = db.query(sql)) {
+            c.moveToFirst();
+        } catch (RuntimeException ex) {
+            Log.w(TAG, "Ignoring failed " + sql, ex);
+        }
+    }
 }
@@ -10,7 +10,9 @@ import com.google.android.gms.location.GeofencingClient;
 import com.google.android.gms.location.GeofencingRequest;
 import com.google.android.gms.location.LocationServices;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -86,6 +88,24 @@ public class LocationReminderService {
         geofencingClient.removeGeofences(Collections.singletonList(requestId));
     }
 
+    /**
+     * Remove the geofences of many reminders with a single Play Services call.
+     */
+    public void removeGeofencesForReminders(List<Reminder> reminders) {
+        if (reminders == null || reminders.isEmpty()) {
+            return;
+        }
+        List<String> requestIds = new ArrayList<>(reminders.size());
+        for (Reminder reminder : reminders) {
+            if (reminder != null && reminder.getId() != null) {
+                requestIds.add(buildRequestId(reminder.getId()));
+            }
+        }
+        if (!requestIds.isEmpty()) {
+            geofencingClient.removeGeofences(requestIds);
+        }
+    }
+
     private PendingIntent getGeofencePendingIntent() {
         Intent intent = new Intent(appContext, GeofenceReceiver.class);
         return PendingIntent.getBroadcast(
@@ -2,13 +2,33 @@ package com.example.anchornotes.data;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import java.util.Date;
 import java.util.UUID;
 
-@Entity(tableName = "notes")
+// updatedAt: date-range filters and newest/oldest ordering.
+// (pinned, updatedAt, id): the pinned-first list order, including the id tie-breaker
+// used by keyset paging.
+// (pinned, titleSortKey, id) in both title directions: TITLE_ASC / TITLE_DESC
+// walk one of them in order instead of sorting.
+@Entity(
+        tableName = "notes",
+        indices = {
+                @Index("updatedAt"),
+                @Index({"pinned", "updatedAt", "id"}),
+                @Index(value = {"pinned", "titleSortKey", "id"},
+                        orders = {Index.Order.DESC, Index.Order.ASC, Index.Order.DESC},
+                        name = "index_notes_title_asc"),
+                @Index(value = {"pinned", "titleSortKey", "id"},
+                        orders = {Index.Order.DESC, Index.Order.DESC, Index.Order.DESC},
+                        name = "index_notes_title_desc")
+        }
+)
 public class Note {
 
     @PrimaryKey
@@ -52,6 +72,18 @@ public class Note {
     @Nullable
     private String relevantType; // "TIME" or "GEOFENCE"
 
+    // Long bodies (see NoteBody): when true, content holds only the first
+    // NoteBody.HEAD_LENGTH chars and the full text is in note_bodies.
+    // Notes loaded with NoteDao.getNoteWithBody() have the full text and
+    // this flag cleared.
+    @ColumnInfo(defaultValue = "0")
+    private boolean bodyExternal;
+
+    // Collation key of the title for the device locale (TitleSortKeys);
+    // set by NoteDao on every write, never edited directly
+    @Nullable
+    private byte[] titleSortKey;
+
     // ----------------------------------------------------
 
     public Note() {
@@ -67,6 +99,31 @@ public class Note {
         this.updatedAt = now;
     }
 
+    /** A copy of other that shares nothing mutable with it. */
+    @Ignore
+    public Note(@NonNull Note other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.content = other.content;
+        this.createdAt = copyOf(other.createdAt);
+        this.updatedAt = copyOf(other.updatedAt);
+        this.reminderId = other.reminderId;
+        this.pinned = other.pinned;
+        this.locationLat = other.locationLat;
+        this.locationLng = other.locationLng;
+        this.photoUri = other.photoUri;
+        this.audioUri = other.audioUri;
+        this.lastRelevantTriggeredAt = other.lastRelevantTriggeredAt;
+        this.relevantType = other.relevantType;
+        this.bodyExternal = other.bodyExternal;
+        this.titleSortKey = other.titleSortKey != null ? other.titleSortKey.clone() : null;
+    }
+
+    @Nullable
+    private static Date copyOf(@Nullable Date date) {
+        return date != null ? new Date(date.getTime()) : null;
+    }
+
     // ----------------------------------------------------
     // GETTERS / SETTERS
     // ----------------------------------------------------
@@ -126,4 +183,11 @@ public class Note {
     @Nullable
     public String getRelevantType() { return relevantType; }
     public void setRelevantType(@Nullable String relevantType) { this.relevantType = relevantType; }
+
+    public boolean isBodyExternal() { return bodyExternal; }
+    public void setBodyExternal(boolean bodyExternal) { this.bodyExternal = bodyExternal; }
+
+    @Nullable
+    public byte[] getTitleSortKey() { return titleSortKey; }
+    public void setTitleSortKey(@Nullable byte[] titleSortKey) { this.titleSortKey = titleSortKey; }
 }
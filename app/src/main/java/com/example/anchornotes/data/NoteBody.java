@@ -0,0 +1,145 @@
+package com.example.anchornotes.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Out-of-row storage for long note bodies (pasted logs, transcripts).
+ *
+ * A note whose content is longer than INLINE_LIMIT keeps only its first
+ * HEAD_LENGTH characters in notes.content (enough for the list preview)
+ * and sets notes.bodyExternal; the full text lives here, deflated when
+ * that actually saves space. Only the detail screen loads it (see
+ * NoteDao.getNoteWithBody), so list and search queries never page these
+ * bytes in.
+ */
+@Entity(tableName = "note_bodies")
+public class NoteBody {
+
+    /** Longest content (in chars) still stored inline in notes.content. */
+    public static final int INLINE_LIMIT = 4 * 1024;
+
+    /** Chars kept inline for an external body; covers the list preview. */
+    public static final int HEAD_LENGTH = 512;
+
+    public static final int CODEC_PLAIN = 0;
+    public static final int CODEC_DEFLATE = 1;
+
+    // Only deflate when it saves at least this fraction of the bytes
+    private static final double MIN_DEFLATE_SAVING = 0.1;
+
+    @PrimaryKey
+    @NonNull
+    private UUID noteId;
+
+    private int codec;
+
+    @Nullable
+    private byte[] data;
+
+    public NoteBody(@NonNull UUID noteId, int codec, @Nullable byte[] data) {
+        this.noteId = noteId;
+        this.codec = codec;
+        this.data = data;
+    }
+
+    @NonNull
+    public UUID getNoteId() { return noteId; }
+    public void setNoteId(@NonNull UUID noteId) { this.noteId = noteId; }
+
+    public int getCodec() { return codec; }
+    public void setCodec(int codec) { this.codec = codec; }
+
+    @Nullable
+    public byte[] getData() { return data; }
+    public void setData(@Nullable byte[] data) { this.data = data; }
+
+    /** True if this content is too long to keep inline. */
+    public static boolean isExternal(@Nullable String content) {
+        return content != null && content.length() > INLINE_LIMIT;
+    }
+
+    /** The part of an external body kept in notes.content. */
+    public static String headOf(String content) {
+        int end = Math.min(content.length(), HEAD_LENGTH);
+        // Don't split a surrogate pair
+        if (end < content.length() && Character.isHighSurrogate(content.charAt(end - 1))) {
+            end--;
+        }
+        return content.substring(0, end);
+    }
+
+    /** Encode content as UTF-8, deflated if that's meaningfully smaller. */
+    public static NoteBody encode(@NonNull UUID noteId, @NonNull String content) {
+        byte[] plain = content.getBytes(StandardCharsets.UTF_8);
+        byte[] deflated = deflate(plain);
+        if (deflated.length <= plain.length * (1 - MIN_DEFLATE_SAVING)) {
+            return new NoteBody(noteId, CODEC_DEFLATE, deflated);
+        }
+        return new NoteBody(noteId, CODEC_PLAIN, plain);
+    }
+
+    /** The full content, or null if the stored bytes can't be decoded. */
+    @Nullable
+    public String decode() {
+        if (data == null) {
+            return null;
+        }
+        if (codec == CODEC_PLAIN) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+        if (codec == CODEC_DEFLATE) {
+            byte[] plain = inflate(data);
+            return plain != null ? new String(plain, StandardCharsets.UTF_8) : null;
+        }
+        return null;
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Nullable
+    private static byte[] inflate(byte[] input) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 3);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    return null; // truncated or corrupt
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException ex) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -5,8 +5,13 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RawQuery;
+import androidx.room.Transaction;
 import androidx.room.Update;
+import androidx.sqlite.db.SupportSQLiteQuery;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,23 +24,288 @@ public interface NoteDao {
 
     // ---------- Notes ----------
 
-    @Query("SELECT * FROM notes ORDER BY updatedAt DESC")
-    List<Note> getAllNotes();
-
     @Query("SELECT * FROM notes WHERE id = :id LIMIT 1")
     Note getNoteById(UUID id);
 
-    @Query("SELECT * FROM notes ORDER BY pinned DESC, updatedAt DESC")
-    List<Note> getAllNotesPinnedFirst();
-
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertNote(Note note);
+    void insertNoteRow(Note note);
 
     @Update
-    void updateNote(Note note);
+    void updateNoteRow(Note note);
 
     @Delete
-    void deleteNote(Note note);
+    void deleteNoteRow(Note note);
+
+    // Note writes go through these wrappers so the search indexes and the
+    // out-of-row body (NoteBody) stay in sync.
+
+    @Transaction
+    default void insertNote(Note note) {
+        // REPLACE may give the row a new rowid, so drop the old index rows first
+        deleteSearchEntry(note.getId());
+        deleteTrigrams(note.getId());
+        writeNote(note, true);
+    }
+
+    @Transaction
+    default void updateNote(Note note) {
+        writeNote(note, false);
+    }
+
+    @Transaction
+    default void deleteNote(Note note) {
+        deleteSearchEntry(note.getId());
+        deleteTrigrams(note.getId());
+        deleteBody(note.getId());
+        deleteNoteRow(note);
+    }
+
+    /**
+     * Write the note row, moving a long body out of row: notes.content gets
+     * only the head and note_bodies the full (possibly deflated) text. The
+     * row is written from a copy, so the Note passed in is left as it is.
+     * A note that was loaded without its body (bodyExternal still set) only
+     * has the head, so its stored body is kept as it is. The title's
+     * collation key is computed here, once per write.
+     */
+    default void writeNote(Note note, boolean insert) {
+        UUID id = note.getId();
+        String content = note.getContent();
+        Note row = new Note(note);
+        row.setTitleSortKey(TitleSortKeys.of(note.getTitle()));
+
+        if (note.isBodyExternal()) {
+            writeNoteRow(row, insert);
+            NoteBody body = getBody(id);
+            String full = body != null ? body.decode() : null;
+            indexForSearch(id, note.getTitle(), full != null ? full : content);
+            return;
+        }
+
+        if (!NoteBody.isExternal(content)) {
+            deleteBody(id);
+            writeNoteRow(row, insert);
+        } else {
+            row.setContent(NoteBody.headOf(content));
+            row.setBodyExternal(true);
+            writeNoteRow(row, insert);
+            insertBody(NoteBody.encode(id, content));
+        }
+        indexForSearch(id, note.getTitle(), content);
+    }
+
+    default void writeNoteRow(Note note, boolean insert) {
+        if (insert) {
+            insertNoteRow(note);
+        } else {
+            updateNoteRow(note);
+        }
+    }
+
+    // ---------- Out-of-row bodies ----------
+
+    @Query("SELECT * FROM note_bodies WHERE noteId = :noteId")
+    NoteBody getBody(UUID noteId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertBody(NoteBody body);
+
+    @Query("DELETE FROM note_bodies WHERE noteId = :noteId")
+    void deleteBody(UUID noteId);
+
+    @Query("DELETE FROM note_bodies WHERE noteId IN (:noteIds)")
+    void deleteBodies(List<UUID> noteIds);
+
+    /**
+     * The note with its full content, for the detail screen. Every other
+     * query returns only the head of a long body.
+     */
+    @Transaction
+    default Note getNoteWithBody(UUID id) {
+        Note note = getNoteById(id);
+        if (note != null && note.isBodyExternal()) {
+            NoteBody body = getBody(id);
+            String full = body != null ? body.decode() : null;
+            if (full != null) {
+                note.setContent(full);
+                note.setBodyExternal(false);
+            }
+        }
+        return note;
+    }
+
+    // ---------- Bulk (multi-select) ----------
+
+    @Query("SELECT * FROM notes WHERE id IN (:noteIds)")
+    List<Note> getNotesByIds(List<UUID> noteIds);
+
+    @Query("DELETE FROM notes_fts WHERE rowid IN " +
+            "(SELECT rowid FROM notes WHERE id IN (:noteIds))")
+    void deleteSearchEntries(List<UUID> noteIds);
+
+    @Query("DELETE FROM note_tags WHERE noteId IN (:noteIds)")
+    void deleteTagRowsForNotes(List<UUID> noteIds);
+
+    @Query("DELETE FROM notes WHERE id IN (:noteIds)")
+    void deleteNoteRows(List<UUID> noteIds);
+
+    @Query("UPDATE notes SET pinned = :pinned WHERE id IN (:noteIds)")
+    void setPinnedRows(List<UUID> noteIds, boolean pinned);
+
+    /**
+     * Delete many notes with their reminders, tag mappings and search
+     * entries: a handful of statements per chunk, one transaction overall.
+     */
+    @Transaction
+    default void deleteNotes(List<UUID> noteIds) {
+        for (List<UUID> chunk : SqlBatches.chunks(noteIds)) {
+            deleteSearchEntries(chunk);
+            deleteTrigramsForNotes(chunk);
+            deleteRemindersForNotes(chunk);
+            deleteTagRowsForNotes(chunk);
+            deleteBodies(chunk);
+            deleteNoteRows(chunk);
+        }
+    }
+
+    /** Pin or unpin many notes (pinned isn't indexed for search, so no reindex). */
+    @Transaction
+    default void setPinned(List<UUID> noteIds, boolean pinned) {
+        for (List<UUID> chunk : SqlBatches.chunks(noteIds)) {
+            setPinnedRows(chunk, pinned);
+        }
+    }
+
+    @Query("UPDATE notes SET locationLat = :lat, locationLng = :lng, updatedAt = :updatedAt " +
+            "WHERE id = :noteId")
+    void setLocationRow(UUID noteId, Double lat, Double lng, long updatedAt);
+
+    /**
+     * Apply a batch of queued edits (NoteWriteQueue) in one transaction:
+     * pins grouped into one UPDATE per value, locations one row at a time.
+     */
+    @Transaction
+    default void applyMutations(List<NoteWriteQueue.Mutation> mutations) {
+        List<UUID> pin = new ArrayList<>();
+        List<UUID> unpin = new ArrayList<>();
+        for (NoteWriteQueue.Mutation m : mutations) {
+            if (m.pinned != null) {
+                (m.pinned ? pin : unpin).add(m.noteId);
+            }
+            if (m.locationChanged) {
+                setLocationRow(m.noteId, m.locationLat, m.locationLng, m.updatedAt);
+            }
+        }
+        if (!pin.isEmpty()) setPinned(pin, true);
+        if (!unpin.isEmpty()) setPinned(unpin, false);
+    }
+
+    // ---------- List screen ----------
+
+    /**
+     * Columns + joins shared by the list queries: the NoteSummary fields of
+     * each note (content cut to a preview in SQL, dates as epoch millis)
+     * with its reminder type/state. Tag names are not selected; the domain
+     * TagIndex fills them from memory, so a page costs no per-row tag
+     * lookups and an ORDER BY ... LIMIT can walk an index and stop early.
+     */
+    String SUMMARY_SELECT =
+            "SELECT n.id, n.title, " +
+            "substr(n.content, 1, " + NoteSummary.PREVIEW_LENGTH + ") AS preview, " +
+            "COALESCE(n.createdAt, 0) AS createdAt, " +
+            "COALESCE(n.updatedAt, 0) AS updatedAt, " +
+            "n.pinned, n.titleSortKey, r.type AS reminderType, " +
+            "COALESCE(r.isActive, 0) AS reminderActive " +
+            "FROM notes n " +
+            "LEFT JOIN reminders r ON r.noteId = n.id ";
+
+    /**
+     * List rows for a query compiled by the domain NoteQuery
+     * (filter, sort, tag and search text in one statement).
+     */
+    @RawQuery
+    List<NoteSummary> queryNoteSummaries(SupportSQLiteQuery query);
+
+    /** Row count for a NoteQuery.toCountQuery() statement. */
+    @RawQuery
+    int countNotes(SupportSQLiteQuery query);
+
+    // ---------- Search ----------
+
+    @Query(NoteFts.INDEX_NOTE)
+    void indexNote(UUID noteId, String title, String content, String cjk);
+
+    @Query("DELETE FROM notes_fts WHERE rowid = " +
+            "(SELECT rowid FROM notes WHERE id = :noteId)")
+    void deleteSearchEntry(UUID noteId);
+
+    /** Full-text and trigram entries for a note that was just written. */
+    default void indexForSearch(UUID noteId, String title, String content) {
+        indexNote(noteId, title, content, SearchTokenizer.cjkIndexText(title, content));
+        indexTrigrams(noteId, title, content);
+    }
+
+    // ---------- Trigram index (fuzzy search) ----------
+
+    @Query("SELECT rowid FROM notes WHERE id = :noteId")
+    Long getRowId(UUID noteId);
+
+    @Query("SELECT gram FROM note_trigrams WHERE noteRowId = :noteRowId")
+    List<Long> getTrigrams(long noteRowId);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertTrigrams(List<NoteTrigram> trigrams);
+
+    @Query("DELETE FROM note_trigrams WHERE noteRowId = :noteRowId AND gram IN (:grams)")
+    void deleteTrigramRows(long noteRowId, List<Long> grams);
+
+    @Query("DELETE FROM note_trigrams WHERE noteRowId = " +
+            "(SELECT rowid FROM notes WHERE id = :noteId)")
+    void deleteTrigrams(UUID noteId);
+
+    @Query("DELETE FROM note_trigrams WHERE noteRowId IN " +
+            "(SELECT rowid FROM notes WHERE id IN (:noteIds))")
+    void deleteTrigramsForNotes(List<UUID> noteIds);
+
+    /**
+     * Bring the note's trigram rows in line with its title and content:
+     * only grams that appeared are inserted and only vanished ones deleted,
+     * so fixing a typo touches a handful of rows, not the whole note.
+     */
+    default void indexTrigrams(UUID noteId, String title, String content) {
+        Long rowId = getRowId(noteId);
+        if (rowId == null) return;
+
+        long[] wanted = Trigrams.of(title, content);
+        List<Long> stored = getTrigrams(rowId);
+        long[] current = new long[stored.size()];
+        for (int k = 0; k < current.length; k++) {
+            current[k] = stored.get(k);
+        }
+        Arrays.sort(current);
+
+        List<NoteTrigram> added = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < wanted.length || j < current.length) {
+            if (j == current.length || (i < wanted.length && wanted[i] < current[j])) {
+                added.add(new NoteTrigram(wanted[i++], rowId));
+            } else if (i == wanted.length || current[j] < wanted[i]) {
+                removed.add(current[j++]);
+            } else {
+                i++;
+                j++;
+            }
+        }
+
+        for (List<Long> chunk : SqlBatches.chunks(removed)) {
+            deleteTrigramRows(rowId, chunk);
+        }
+        if (!added.isEmpty()) {
+            insertTrigrams(added);
+        }
+    }
 
     // ---------- Reminders ----------
 
@@ -54,4 +324,78 @@ public interface NoteDao {
     @Delete
     void deleteReminder(Reminder reminder);
 
+    @Query("DELETE FROM reminders WHERE noteId = :noteId")
+    void deleteRemindersForNote(UUID noteId);
+
+    @Query("SELECT * FROM reminders WHERE noteId IN (:noteIds)")
+    List<Reminder> getRemindersForNoteRows(List<UUID> noteIds);
+
+    @Query("DELETE FROM reminders WHERE noteId IN (:noteIds)")
+    void deleteRemindersForNotes(List<UUID> noteIds);
+
+    @Query("UPDATE notes SET reminderId = NULL WHERE id IN (:noteIds)")
+    void clearNoteReminderIds(List<UUID> noteIds);
+
+    @Query("UPDATE reminders SET triggerTime = triggerTime + :shiftMillis " +
+            "WHERE noteId IN (:noteIds) AND type = 'TIME' AND isActive = 1")
+    void shiftTimeReminderRows(List<UUID> noteIds, long shiftMillis);
+
+    @Transaction
+    default List<Reminder> getRemindersForNotes(List<UUID> noteIds) {
+        List<Reminder> reminders = new ArrayList<>();
+        for (List<UUID> chunk : SqlBatches.chunks(noteIds)) {
+            reminders.addAll(getRemindersForNoteRows(chunk));
+        }
+        return reminders;
+    }
+
+    /** Drop the reminders of many notes and unlink them, in one transaction. */
+    @Transaction
+    default void clearRemindersForNotes(List<UUID> noteIds) {
+        for (List<UUID> chunk : SqlBatches.chunks(noteIds)) {
+            deleteRemindersForNotes(chunk);
+            clearNoteReminderIds(chunk);
+        }
+    }
+
+    /**
+     * Move the active time reminders of many notes by shiftMillis and
+     * return the updated rows, so the caller can reschedule their alarms.
+     */
+    @Transaction
+    default List<Reminder> shiftTimeReminders(List<UUID> noteIds, long shiftMillis) {
+        List<Reminder> moved = new ArrayList<>();
+        for (List<UUID> chunk : SqlBatches.chunks(noteIds)) {
+            shiftTimeReminderRows(chunk, shiftMillis);
+            for (Reminder reminder : getRemindersForNoteRows(chunk)) {
+                if (reminder.getType() == ReminderType.TIME && reminder.isActive()) {
+                    moved.add(reminder);
+                }
+            }
+        }
+        return moved;
+    }
+
+    /** Point a note at its reminder without rewriting (and reindexing) the whole row. */
+    @Query("UPDATE notes SET reminderId = :reminderId WHERE id = :noteId")
+    void setNoteReminderId(UUID noteId, UUID reminderId);
+
+    /**
+     * Swap a note's reminder for a new one in one transaction: drop the old
+     * reminder rows, insert the new one and link it from the note.
+     */
+    @Transaction
+    default void replaceReminderForNote(UUID noteId, Reminder reminder) {
+        deleteRemindersForNote(noteId);
+        insertReminder(reminder);
+        setNoteReminderId(noteId, reminder.getId());
+    }
+
+    /** Drop a note's reminder rows and unlink them from the note, atomically. */
+    @Transaction
+    default void clearReminderForNote(UUID noteId) {
+        deleteRemindersForNote(noteId);
+        setNoteReminderId(noteId, null);
+    }
+
 }
@@ -0,0 +1,147 @@
+package com.example.anchornotes.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+import java.util.Arrays;
+
+/**
+ * FTS4 search index over note title, content and tag names.
+ *
+ * unicode61 splits on whitespace and punctuation, which leaves a whole run
+ * of Chinese, Japanese or Korean text as one token. The extra "cjk" column
+ * therefore holds the CJK text of title and content pre-split into
+ * character bigrams by SearchTokenizer (null for notes without any), and
+ * buildMatchQuery splits the search text the same way.
+ *
+ * Each row shares its rowid with the matching row in "notes", so a search
+ * joins back to the note by rowid instead of scanning the notes table.
+ * Rows are written by NoteDao on every note write (with the full body, even
+ * when it is stored out of row) and their tags refreshed by TagDao.
+ */
+@Fts4(tokenizer = FtsOptions.TOKENIZER_UNICODE61, prefix = {2, 3})
+@Entity(tableName = "notes_fts")
+public class NoteFts {
+
+    /**
+     * Writes the index row for note :noteId from the given title and full
+     * content. The content is bound from Java rather than read from
+     * notes.content, which only holds the head of a long body (see NoteBody).
+     * :cjk is SearchTokenizer.cjkIndexText(title, content).
+     */
+    static final String INDEX_NOTE =
+            "INSERT OR REPLACE INTO notes_fts(rowid, title, content, tags, cjk) " +
+            "SELECT n.rowid, :title, :content, " +
+            "(SELECT group_concat(t.name, ' ') FROM note_tags nt " +
+            "INNER JOIN tags t ON t.id = nt.tagId " +
+            "WHERE nt.noteId = n.id), :cjk " +
+            "FROM notes n WHERE n.id = :noteId";
+
+    /**
+     * Refreshes only the tags column of existing index rows, leaving title
+     * and content as indexed. Callers append a WHERE clause on rowid.
+     */
+    static final String UPDATE_TAGS =
+            "UPDATE notes_fts SET tags = " +
+            "(SELECT group_concat(t.name, ' ') FROM notes n " +
+            "INNER JOIN note_tags nt ON nt.noteId = n.id " +
+            "INNER JOIN tags t ON t.id = nt.tagId " +
+            "WHERE n.rowid = notes_fts.rowid) ";
+
+    /**
+     * Per-hit statistics for ranking (see domain SearchRanker): phrase and
+     * column counts, row count, average and current column lengths, then
+     * per phrase and column the hits in this row, in all rows, and the
+     * number of rows with a hit.
+     */
+    public static final String MATCH_INFO = "matchinfo(notes_fts, 'pcnalx')";
+
+    /** Marks the start and end of each matched term in a snippet. */
+    static final char HIGHLIGHT_START = '\u0002';
+    static final char HIGHLIGHT_END = '\u0003';
+
+    /**
+     * (noteId, snippet) for the notes matching the first argument. The FTS
+     * table drives the join; callers append "AND n.id IN (...)". Snippets
+     * are cut from whichever column matched best, about 12 tokens long.
+     */
+    static final String SNIPPET_SELECT =
+            "SELECT n.id, snippet(notes_fts, char(2), char(3), '\u2026', -1, 12) " +
+            "FROM notes_fts INNER JOIN notes n ON n.rowid = notes_fts.rowid " +
+            "WHERE notes_fts MATCH ? ";
+
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long rowId;
+
+    private String title;
+    private String content;
+    private String tags;
+    private String cjk;
+
+    public long getRowId() { return rowId; }
+    public void setRowId(long rowId) { this.rowId = rowId; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+
+    public String getTags() { return tags; }
+    public void setTags(String tags) { this.tags = tags; }
+
+    public String getCjk() { return cjk; }
+    public void setCjk(String cjk) { this.cjk = cjk; }
+
+    /**
+     * Turn free text typed by the user into an FTS MATCH expression.
+     * Every word becomes a prefix term and all terms must match, so
+     * "meet not" finds "Meeting notes". Words are left for unicode61 to
+     * fold exactly as it folded the indexed text, so "Café" finds "cafe",
+     * and "Straße" or full-width text finds itself. CJK text becomes one
+     * term per character bigram, matched against the cjk column, so
+     * "会议记录" finds notes containing it anywhere in a sentence. Returns
+     * null if there is nothing searchable in the input.
+     */
+    public static String buildMatchQuery(String rawQuery) {
+        if (rawQuery == null) return null;
+
+        StringBuilder sb = new StringBuilder();
+        for (String token : SearchTokenizer.tokenize(rawQuery)) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(token).append('*');
+        }
+        return sb.length() > 0 ? sb.toString() : null;
+    }
+
+    /**
+     * Strip the highlight markers from a snippet into out and return the
+     * highlighted ranges as [start, end) pairs of offsets into out.
+     */
+    static int[] parseSnippet(String marked, StringBuilder out) {
+        out.setLength(0);
+        int[] ranges = new int[8];
+        int count = 0;
+
+        for (int i = 0; i < marked.length(); i++) {
+            char c = marked.charAt(i);
+            if (c == HIGHLIGHT_START || c == HIGHLIGHT_END) {
+                if (count == ranges.length) {
+                    ranges = Arrays.copyOf(ranges, count * 2);
+                }
+                ranges[count++] = out.length();
+            } else {
+                out.append(c);
+            }
+        }
+
+        int[] result = Arrays.copyOf(ranges, count + count % 2);
+        // An unterminated highlight runs to the end
+        if (count % 2 != 0) result[count] = out.length();
+        return result;
+    }
+}
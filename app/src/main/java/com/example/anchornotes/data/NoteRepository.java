@@ -1,44 +1,268 @@
 package com.example.anchornotes.data;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.os.CancellationSignal;
 
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 
 /**
  * Repository wrapping the Room DAO.
  * Implements the methods described in design doc 5.1.2.
+ *
+ * The plain methods block and must be called off the main thread (e.g. from
+ * DatabaseExecutor). The only *Async methods are the queued pin and
+ * location edits below. observe* methods return an ObservableQuery
+ * that re-runs only when the tables it reads change.
+ *
+ * Pin and location edits go through a write-behind queue (NoteWriteQueue)
+ * that coalesces them; methods that load or write whole notes flush it
+ * first, so they always see the latest edits.
+ *
+ * getNote and getReminderForNote are served from a shared LRU
+ * (EntityCache) when possible; every write method here evicts the notes
+ * and reminders it touched once the write is done.
  */
 public class NoteRepository {
 
+    private final Context context;
+    private final LocalDatabase db;
     private final NoteDao noteDao;
+    private final NoteWriteQueue writeQueue;
+    private final EntityCache cache = EntityCache.getInstance();
 
     public NoteRepository(Context context) {
-        LocalDatabase db = LocalDatabase.getInstance(context.getApplicationContext());
+        this.context = context.getApplicationContext();
+        this.db = LocalDatabase.getInstance(this.context);
         this.noteDao = db.noteDao();
+        this.writeQueue = NoteWriteQueue.getInstance(db);
+        TitleSortKeys.refreshIfLocaleChanged(this.context, db);
     }
 
     // ---------- Notes ----------
 
-    public List<Note> getAllNotes() {
-        return noteDao.getAllNotes();
+    /** Note with its full content even if the body is stored out of row. */
+    public Note getNoteWithBody(UUID id) {
+        if (id == null) return null;
+        writeQueue.flush();
+        return noteDao.getNoteWithBody(id);
+    }
+
+    /**
+     * Runs query (from this repository) on the database thread, again
+     * whenever one of the tables changes while observed.
+     */
+    public <T> ObservableQuery<T> observe(Callable<T> query, String... tables) {
+        return new ObservableQuery<>(context, query, tables);
     }
 
     public Note getNote(UUID id) {
         if (id == null) return null;
-        return noteDao.getNoteById(id);
+        writeQueue.flush();
+        return cache.getNote(id, () -> noteDao.getNoteById(id));
+    }
+
+    // ---------- List screen ----------
+
+    public List<NoteSummary> queryNoteSummaries(SupportSQLiteQuery query) {
+        return noteDao.queryNoteSummaries(query);
+    }
+
+    public int countNotes(SupportSQLiteQuery countQuery) {
+        return noteDao.countNotes(countQuery);
+    }
+
+    /**
+     * queryNoteSummaries that can be abandoned: once signal is cancelled the
+     * query stops and this throws OperationCanceledException. Used for
+     * search-as-you-type, where a newer keystroke makes the result useless.
+     * A null signal runs the query to completion.
+     */
+    public List<NoteSummary> queryNoteSummaries(SupportSQLiteQuery query,
+                                                @Nullable CancellationSignal signal) {
+        try (Cursor c = db.query(query, signal)) {
+            int id = c.getColumnIndexOrThrow("id");
+            int title = c.getColumnIndexOrThrow("title");
+            int preview = c.getColumnIndexOrThrow("preview");
+            int createdAt = c.getColumnIndexOrThrow("createdAt");
+            int updatedAt = c.getColumnIndexOrThrow("updatedAt");
+            int pinned = c.getColumnIndexOrThrow("pinned");
+            int titleSortKey = c.getColumnIndexOrThrow("titleSortKey");
+            int reminderType = c.getColumnIndexOrThrow("reminderType");
+            int reminderActive = c.getColumnIndexOrThrow("reminderActive");
+
+            List<NoteSummary> items = new ArrayList<>(c.getCount());
+            while (c.moveToNext()) {
+                if (signal != null) signal.throwIfCanceled();
+                NoteSummary item = new NoteSummary(Converters.fromBytesToUUID(c.getBlob(id)));
+                item.setTitle(c.getString(title));
+                item.setPreview(c.getString(preview));
+                item.setCreatedAt(c.getLong(createdAt));
+                item.setUpdatedAt(c.getLong(updatedAt));
+                item.setPinned(c.getInt(pinned) != 0);
+                item.setTitleSortKey(c.getBlob(titleSortKey));
+                item.setReminderType(c.isNull(reminderType)
+                        ? null : ReminderType.valueOf(c.getString(reminderType)));
+                item.setReminderActive(c.getInt(reminderActive) != 0);
+                items.add(item);
+            }
+            return items;
+        }
+    }
+
+    /** countNotes, cancellable like queryNoteSummaries(query, signal). */
+    public int countNotes(SupportSQLiteQuery countQuery, @Nullable CancellationSignal signal) {
+        try (Cursor c = db.query(countQuery, signal)) {
+            return c.moveToFirst() ? c.getInt(0) : 0;
+        }
+    }
+
+    /**
+     * Runs a NoteQuery.toMatchQuery() and returns every hit with its FTS
+     * matchinfo, unordered, for ranking. Cancellable like queryNoteSummaries.
+     */
+    public List<SearchMatch> queryMatches(SupportSQLiteQuery matchQuery,
+                                          @Nullable CancellationSignal signal) {
+        try (Cursor c = db.query(matchQuery, signal)) {
+            int id = c.getColumnIndexOrThrow("id");
+            int pinned = c.getColumnIndexOrThrow("pinned");
+            int matchInfo = c.getColumnIndexOrThrow("matchInfo");
+
+            List<SearchMatch> matches = new ArrayList<>(c.getCount());
+            while (c.moveToNext()) {
+                if (signal != null) signal.throwIfCanceled();
+                matches.add(new SearchMatch(Converters.fromBytesToUUID(c.getBlob(id)),
+                        c.getInt(pinned) != 0, c.getBlob(matchInfo)));
+            }
+            return matches;
+        }
+    }
+
+    /** Note ids from a query selecting them in column 0, in query order. */
+    public List<UUID> queryNoteIds(SupportSQLiteQuery idQuery,
+                                   @Nullable CancellationSignal signal) {
+        try (Cursor c = db.query(idQuery, signal)) {
+            List<UUID> ids = new ArrayList<>(c.getCount());
+            while (c.moveToNext()) {
+                if (signal != null) signal.throwIfCanceled();
+                ids.add(Converters.fromBytesToUUID(c.getBlob(0)));
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * List rows for the given notes, in the order of ids (missing notes are
+     * left out). Used to load one page of a ranked search.
+     */
+    public List<NoteSummary> getNoteSummariesByIds(List<UUID> ids,
+                                                   @Nullable CancellationSignal signal) {
+        Map<UUID, NoteSummary> byId = new HashMap<>(ids.size() * 2);
+        for (List<UUID> chunk : SqlBatches.chunks(ids)) {
+            Object[] args = new Object[chunk.size()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = Converters.fromUUIDToBytes(chunk.get(i));
+            }
+            SupportSQLiteQuery query = new SimpleSQLiteQuery(NoteDao.SUMMARY_SELECT
+                    + "WHERE n.id IN (" + SqlBatches.placeholders(args.length) + ")", args);
+            for (NoteSummary item : queryNoteSummaries(query, signal)) {
+                byId.put(item.getId(), item);
+            }
+        }
+
+        List<NoteSummary> items = new ArrayList<>(byId.size());
+        for (UUID id : ids) {
+            NoteSummary item = byId.get(id);
+            if (item != null) items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * Sets the FTS snippet around the match (with its highlight ranges) on
+     * each row that matches the MATCH expression. One query for all rows;
+     * the markers are stripped here so the list never scans the text.
+     * CJK searches keep the plain preview: their hits are in the bigram
+     * column, which would make an unreadable snippet.
+     */
+    public void fillSnippets(List<NoteSummary> items, String match,
+                             @Nullable CancellationSignal signal) {
+        if (items == null || items.isEmpty() || match == null) return;
+        if (SearchTokenizer.containsCjk(match)) return;
+
+        Map<UUID, NoteSummary> byId = new HashMap<>(items.size() * 2);
+        for (NoteSummary item : items) {
+            byId.put(item.getId(), item);
+        }
+        List<UUID> ids = new ArrayList<>(byId.keySet());
+
+        for (List<UUID> chunk : SqlBatches.chunks(ids)) {
+            Object[] args = new Object[chunk.size() + 1];
+            args[0] = match;
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i + 1] = Converters.fromUUIDToBytes(chunk.get(i));
+            }
+            SupportSQLiteQuery query = new SimpleSQLiteQuery(NoteFts.SNIPPET_SELECT
+                    + "AND n.id IN (" + SqlBatches.placeholders(chunk.size()) + ")", args);
+
+            try (Cursor c = db.query(query, signal)) {
+                StringBuilder text = new StringBuilder();
+                while (c.moveToNext()) {
+                    if (signal != null) signal.throwIfCanceled();
+                    NoteSummary item = byId.get(Converters.fromBytesToUUID(c.getBlob(0)));
+                    if (item == null || c.isNull(1)) continue;
+                    int[] highlights = NoteFts.parseSnippet(c.getString(1), text);
+                    item.setSnippet(text.toString(), highlights);
+                }
+            }
+        }
     }
 
     public void insertNote(Note note) {
         noteDao.insertNote(note);
+        cache.evictNote(note.getId());
     }
 
     public void updateNote(Note note) {
+        // A queued edit written after this would undo part of the update
+        writeQueue.flush();
         noteDao.updateNote(note);
+        cache.evictNote(note.getId());
     }
 
     public void deleteNote(Note note) {
+        writeQueue.flush();
         noteDao.deleteNote(note);
+        cache.evictNoteAndReminder(note.getId());
+    }
+
+    // ---------- Queued small edits ----------
+
+    /** Pin state queued but not written yet, or null if there is none. */
+    public Boolean getPendingPinned(UUID noteId) {
+        return writeQueue.getPendingPinned(noteId);
+    }
+
+    /**
+     * Set or clear (null, null) a note's location with a column UPDATE,
+     * coalesced with other quick edits. onApplied runs on the main thread.
+     */
+    public void setLocationAsync(UUID noteId, Double lat, Double lng, Runnable onApplied) {
+        writeQueue.setLocation(noteId, lat, lng, onApplied);
+    }
+
+    /** Write queued edits now (call from a background thread). */
+    public void flushPendingWrites() {
+        writeQueue.flush();
     }
 
     // ---------- Reminders ----------
@@ -50,22 +274,83 @@ public class NoteRepository {
 
     public Reminder getReminderForNote(UUID noteId) {
         if (noteId == null) return null;
-        return noteDao.getReminderForNote(noteId);
+        return cache.getReminderForNote(noteId, () -> noteDao.getReminderForNote(noteId));
     }
 
     public void insertReminder(Reminder reminder) {
         noteDao.insertReminder(reminder);
+        cache.evictNoteAndReminder(reminder.getNoteId());
     }
 
     public void updateReminder(Reminder reminder) {
         noteDao.updateReminder(reminder);
+        cache.evictNoteAndReminder(reminder.getNoteId());
     }
 
     public void deleteReminder(Reminder reminder) {
         noteDao.deleteReminder(reminder);
+        cache.evictNoteAndReminder(reminder.getNoteId());
+    }
+
+    /** Replace whatever reminder the note had with this one (single transaction). */
+    public void replaceReminderForNote(UUID noteId, Reminder reminder) {
+        noteDao.replaceReminderForNote(noteId, reminder);
+        cache.evictNoteAndReminder(noteId);
+    }
+
+    /** Remove the note's reminder rows and clear its reminderId (single transaction). */
+    public void clearReminderForNote(UUID noteId) {
+        noteDao.clearReminderForNote(noteId);
+        cache.evictNoteAndReminder(noteId);
+    }
+
+    // ---------- Bulk (multi-select) ----------
+
+    public List<Note> getNotesByIds(List<UUID> noteIds) {
+        writeQueue.flush();
+        List<Note> notes = new ArrayList<>();
+        for (List<UUID> chunk : SqlBatches.chunks(noteIds)) {
+            notes.addAll(noteDao.getNotesByIds(chunk));
+        }
+        return notes;
+    }
+
+    public List<Reminder> getRemindersForNotes(List<UUID> noteIds) {
+        return noteDao.getRemindersForNotes(noteIds);
     }
 
-    public List<Note> getNotesPinnedFirst() {
-        return noteDao.getAllNotesPinnedFirst();
+    public void deleteNotes(List<UUID> noteIds) {
+        writeQueue.flush();
+        noteDao.deleteNotes(noteIds);
+        cache.evictNotesAndReminders(noteIds);
+    }
+
+    public void setPinned(List<UUID> noteIds, boolean pinned) {
+        // Queued single-note toggles are older than this bulk change
+        writeQueue.flush();
+        noteDao.setPinned(noteIds, pinned);
+        cache.evictNotesAndReminders(noteIds);
+    }
+
+    public void clearRemindersForNotes(List<UUID> noteIds) {
+        noteDao.clearRemindersForNotes(noteIds);
+        cache.evictNotesAndReminders(noteIds);
+    }
+
+    public List<Reminder> shiftTimeReminders(List<UUID> noteIds, long shiftMillis) {
+        List<Reminder> shifted = noteDao.shiftTimeReminders(noteIds, shiftMillis);
+        cache.evictNotesAndReminders(noteIds);
+        return shifted;
+    }
+
+    // ---------- Queued edits ----------
+
+    /**
+     * Pin or unpin one note with a targeted UPDATE (the row isn't rewritten).
+     * Queued: rapid toggles of the same note are merged into one write, and
+     * only the last onDone runs.
+     */
+    public void setPinnedAsync(UUID noteId, boolean pinned, Runnable onDone) {
+        writeQueue.setPinned(noteId, pinned, onDone);
     }
 }
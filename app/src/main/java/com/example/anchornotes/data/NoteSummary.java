@@ -0,0 +1,143 @@
+package com.example.anchornotes.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.Ignore;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Row for the home screen list: just what a list row shows, loaded in one
+ * joined query (tag names added from memory) so the list never goes back
+ * to the database per note.
+ *
+ * Unlike Note, this carries no full body (only the first PREVIEW_LENGTH
+ * characters, cut in SQL), no boxed location fields and no Date objects,
+ * so thousands of loaded rows stay small on the heap. Open the note by id
+ * to get the full entity.
+ */
+public class NoteSummary {
+
+    /** Characters of content kept for the preview line. */
+    public static final int PREVIEW_LENGTH = 120;
+
+    @NonNull
+    private UUID id;
+
+    @Nullable
+    private String title;
+
+    // First PREVIEW_LENGTH characters of the content
+    @Nullable
+    private String preview;
+
+    // Epoch millis, 0 if unset
+    private long createdAt;
+    private long updatedAt;
+
+    private boolean pinned;
+
+    // Title collation key (see Note.titleSortKey), for paging title sorts
+    @Nullable
+    private byte[] titleSortKey;
+
+    // Type of the note's reminder, null if it has none
+    @Nullable
+    private ReminderType reminderType;
+
+    private boolean reminderActive;
+
+    // Comma-separated tag names, null if untagged. Not a query column:
+    // filled from the domain TagIndex after the rows are loaded.
+    @Ignore
+    @Nullable
+    private String tagNames;
+
+    // Search hit context with the matched terms' [start, end) offsets in
+    // pairs; both null outside a search. Filled after the rows are loaded.
+    @Ignore
+    @Nullable
+    private String snippet;
+
+    @Ignore
+    @Nullable
+    private int[] highlights;
+
+    public NoteSummary(@NonNull UUID id) {
+        this.id = id;
+    }
+
+    @NonNull
+    public UUID getId() { return id; }
+    public void setId(@NonNull UUID id) { this.id = id; }
+
+    @Nullable
+    public String getTitle() { return title; }
+    public void setTitle(@Nullable String title) { this.title = title; }
+
+    @Nullable
+    public String getPreview() { return preview; }
+    public void setPreview(@Nullable String preview) { this.preview = preview; }
+
+    public long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+
+    public long getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+
+    public boolean isPinned() { return pinned; }
+    public void setPinned(boolean pinned) { this.pinned = pinned; }
+
+    @Nullable
+    public byte[] getTitleSortKey() { return titleSortKey; }
+    public void setTitleSortKey(@Nullable byte[] titleSortKey) { this.titleSortKey = titleSortKey; }
+
+    @Nullable
+    public ReminderType getReminderType() { return reminderType; }
+    public void setReminderType(@Nullable ReminderType reminderType) { this.reminderType = reminderType; }
+
+    public boolean isReminderActive() { return reminderActive; }
+    public void setReminderActive(boolean reminderActive) { this.reminderActive = reminderActive; }
+
+    @Nullable
+    public String getTagNames() { return tagNames; }
+    public void setTagNames(@Nullable String tagNames) { this.tagNames = tagNames; }
+
+    @Nullable
+    public String getSnippet() { return snippet; }
+
+    @Nullable
+    public int[] getHighlights() { return highlights; }
+
+    public void setSnippet(@Nullable String snippet, @Nullable int[] highlights) {
+        this.snippet = snippet;
+        this.highlights = highlights;
+    }
+
+    /** True if the note has a reminder that hasn't fired or been retired yet. */
+    public boolean hasActiveReminder() {
+        return reminderType != null && reminderActive;
+    }
+
+    /**
+     * True if both rows would render identically. Primitive fields are
+     * compared first, so most changed rows are told apart without touching
+     * a string.
+     */
+    public boolean hasSameContent(NoteSummary other) {
+        if (other == null) {
+            return false;
+        }
+        return updatedAt == other.updatedAt
+                && pinned == other.pinned
+                && reminderActive == other.reminderActive
+                && reminderType == other.reminderType
+                && Objects.equals(title, other.title)
+                && Objects.equals(tagNames, other.tagNames)
+                && Objects.equals(preview, other.preview)
+                && Objects.equals(snippet, other.snippet)
+                && Arrays.equals(highlights, other.highlights);
+    }
+}
@@ -2,15 +2,19 @@ package com.example.anchornotes.data;
 
 import androidx.annotation.NonNull;
 import androidx.room.Entity;
+import androidx.room.Index;
 
 import java.util.UUID;
 
 /**
  * Join table between notes and tags (many-to-many).
+ * The primary key covers lookups by noteId; tagId gets its own index
+ * for the "notes with this tag" direction.
  */
 @Entity(
         tableName = "note_tags",
-        primaryKeys = { "noteId", "tagId" }
+        primaryKeys = { "noteId", "tagId" },
+        indices = { @Index("tagId") }
 )
 public class NoteTag {
 
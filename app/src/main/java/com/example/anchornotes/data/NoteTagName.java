@@ -0,0 +1,37 @@
+package com.example.anchornotes.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.UUID;
+
+/**
+ * One note → tag mapping with the tag's name, as loaded in bulk by
+ * TagDao.getAllTagNames for the TagIndex.
+ */
+public class NoteTagName {
+
+    @NonNull
+    private final UUID noteId;
+
+    @NonNull
+    private final UUID tagId;
+
+    @Nullable
+    private final String name;
+
+    public NoteTagName(@NonNull UUID noteId, @NonNull UUID tagId, @Nullable String name) {
+        this.noteId = noteId;
+        this.tagId = tagId;
+        this.name = name;
+    }
+
+    @NonNull
+    public UUID getNoteId() { return noteId; }
+
+    @NonNull
+    public UUID getTagId() { return tagId; }
+
+    @Nullable
+    public String getName() { return name; }
+}
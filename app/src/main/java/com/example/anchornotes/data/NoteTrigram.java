@@ -0,0 +1,33 @@
+package com.example.anchornotes.data;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * Trigram index over note title and content, for typo-tolerant search:
+ * one row per distinct gram (see Trigrams) per note. Notes are keyed by
+ * notes.rowid like notes_fts, which keeps the table two integers wide.
+ *
+ * NoteDao updates a note's rows on every write by diffing its old and new
+ * gram sets, so a small edit only touches the grams it changed. Tag names
+ * are indexed once per tag in TagTrigram instead of once per note.
+ */
+@Entity(tableName = "note_trigrams",
+        primaryKeys = {"gram", "noteRowId"},
+        indices = {@Index("noteRowId")})
+public class NoteTrigram {
+
+    private long gram;
+    private long noteRowId;
+
+    public NoteTrigram(long gram, long noteRowId) {
+        this.gram = gram;
+        this.noteRowId = noteRowId;
+    }
+
+    public long getGram() { return gram; }
+    public void setGram(long gram) { this.gram = gram; }
+
+    public long getNoteRowId() { return noteRowId; }
+    public void setNoteRowId(long noteRowId) { this.noteRowId = noteRowId; }
+}
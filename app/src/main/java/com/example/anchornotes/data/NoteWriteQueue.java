@@ -0,0 +1,264 @@
+package com.example.anchornotes.data;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Write-behind queue for small note edits (pin state, attached location).
+ *
+ * Edits are held for a short window and merged per note, so tapping a pin
+ * star five times in a row costs one UPDATE of the last value instead of
+ * five writes. Everything pending is applied in a single transaction with
+ * column-level UPDATEs, never a whole-row rewrite.
+ *
+ * NoteRepository flushes the queue before it reads or writes whole notes,
+ * so a detail load or save never sees (or overwrites) a stale row; the
+ * written notes are evicted from EntityCache.
+ *
+ * An edit that fails to write is retried with exponential backoff and
+ * dropped (logged, its onApplied never runs) after MAX_ATTEMPTS, so a
+ * persistent error can't keep the database thread busy.
+ */
+public final class NoteWriteQueue {
+
+    /** How long edits are collected before they are written. */
+    static final long COALESCE_WINDOW_MILLIS = 300;
+
+    /** Failed writes of one edit before it is dropped. */
+    static final int MAX_ATTEMPTS = 5;
+
+    /** Longest wait between retries of a failed edit. */
+    static final long MAX_RETRY_DELAY_MILLIS = 10_000;
+
+    private static final String TAG = "NoteWriteQueue";
+
+    /** The merged, not yet written edits for one note. */
+    static final class Mutation {
+        final UUID noteId;
+        @Nullable Boolean pinned;
+        boolean locationChanged;
+        @Nullable Double locationLat;
+        @Nullable Double locationLng;
+        long updatedAt;
+        @Nullable Runnable onApplied;
+        // Failed writes so far, and when the next try is due (elapsedRealtime)
+        int failures;
+        long retryAt;
+
+        Mutation(UUID noteId) {
+            this.noteId = noteId;
+        }
+    }
+
+    private static volatile NoteWriteQueue instance;
+
+    private final NoteDao noteDao;
+    private final Object flushLock = new Object();
+
+    // Guarded by this
+    private final Map<UUID, Mutation> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    private NoteWriteQueue(NoteDao noteDao) {
+        this.noteDao = noteDao;
+    }
+
+    static NoteWriteQueue getInstance(LocalDatabase db) {
+        if (instance == null) {
+            synchronized (NoteWriteQueue.class) {
+                if (instance == null) {
+                    instance = new NoteWriteQueue(db.noteDao());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Queue a pin change. A later change to the same note replaces this one,
+     * and only the latest onApplied runs (on the main thread) once written.
+     */
+    public void setPinned(UUID noteId, boolean pinned, @Nullable Runnable onApplied) {
+        synchronized (this) {
+            Mutation m = mutationFor(noteId);
+            m.pinned = pinned;
+            if (onApplied != null) m.onApplied = onApplied;
+            scheduleFlush();
+        }
+    }
+
+    /** Queue a new location (null, null = remove it); also bumps updatedAt. */
+    public void setLocation(UUID noteId, @Nullable Double lat, @Nullable Double lng,
+                            @Nullable Runnable onApplied) {
+        synchronized (this) {
+            Mutation m = mutationFor(noteId);
+            m.locationChanged = true;
+            m.locationLat = lat;
+            m.locationLng = lng;
+            m.updatedAt = System.currentTimeMillis();
+            if (onApplied != null) m.onApplied = onApplied;
+            scheduleFlush();
+        }
+    }
+
+    /** Pin state still waiting to be written, or null if none is queued. */
+    @Nullable
+    public synchronized Boolean getPendingPinned(UUID noteId) {
+        Mutation m = pending.get(noteId);
+        return m != null ? m.pinned : null;
+    }
+
+    /**
+     * Write everything pending now, on the calling (background) thread.
+     * Cheap when nothing is queued. Edits waiting out a retry backoff are
+     * left queued. If the batch fails, each edit is retried on its own, so
+     * one bad edit doesn't hold up the others; those that still fail go
+     * back into the queue (behind any newer edit to the same note).
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            long now = SystemClock.elapsedRealtime();
+            List<Mutation> batch = new ArrayList<>();
+            synchronized (this) {
+                for (Iterator<Mutation> it = pending.values().iterator(); it.hasNext(); ) {
+                    Mutation m = it.next();
+                    if (m.retryAt <= now) {
+                        batch.add(m);
+                        it.remove();
+                    }
+                }
+                if (batch.isEmpty()) return;
+            }
+
+            List<Mutation> failed = write(batch);
+            EntityCache cache = EntityCache.getInstance();
+            for (Mutation m : batch) {
+                if (failed.contains(m)) continue;
+                cache.evictNote(m.noteId);
+                if (m.onApplied != null) {
+                    DatabaseExecutor.postToMain(m.onApplied);
+                }
+            }
+
+            synchronized (this) {
+                if (!failed.isEmpty()) {
+                    requeue(failed, now);
+                }
+                if (!pending.isEmpty()) {
+                    scheduleFlush(delayUntilDue(now));
+                }
+            }
+        }
+    }
+
+    /** Write mutations; returns the ones that could not be written. */
+    private List<Mutation> write(List<Mutation> mutations) {
+        try {
+            noteDao.applyMutations(mutations);
+            return Collections.emptyList();
+        } catch (RuntimeException ex) {
+            if (mutations.size() == 1) {
+                Log.w(TAG, "Writing queued edit of note " + mutations.get(0).noteId +
+                        " failed", ex);
+                return mutations;
+            }
+            Log.w(TAG, "Writing " + mutations.size() + " queued edits failed, " +
+                    "retrying one at a time", ex);
+        }
+        List<Mutation> failed = new ArrayList<>();
+        for (Mutation m : mutations) {
+            failed.addAll(write(Collections.singletonList(m)));
+        }
+        return failed;
+    }
+
+    /**
+     * Put edits that failed to write back in front of the queue, due again
+     * after a backoff that doubles per failure. An edit queued for the same
+     * note meanwhile is newer and wins field by field; the older one only
+     * fills in what the newer one doesn't set. After MAX_ATTEMPTS failures
+     * the note's edits are dropped.
+     */
+    private void requeue(List<Mutation> failed, long now) {
+        Map<UUID, Mutation> merged = new LinkedHashMap<>();
+        for (Mutation old : failed) {
+            Mutation m = old;
+            Mutation newer = pending.get(old.noteId);
+            if (newer != null) {
+                if (newer.pinned == null) newer.pinned = old.pinned;
+                if (!newer.locationChanged && old.locationChanged) {
+                    newer.locationChanged = true;
+                    newer.locationLat = old.locationLat;
+                    newer.locationLng = old.locationLng;
+                    newer.updatedAt = old.updatedAt;
+                }
+                if (newer.onApplied == null) newer.onApplied = old.onApplied;
+                m = newer;
+            }
+            m.failures = old.failures + 1;
+            if (m.failures >= MAX_ATTEMPTS) {
+                Log.e(TAG, "Dropping queued edit of note " + m.noteId + " after " +
+                        m.failures + " failed writes");
+                pending.remove(m.noteId);
+                continue;
+            }
+            m.retryAt = now + Math.min(COALESCE_WINDOW_MILLIS << m.failures,
+                    MAX_RETRY_DELAY_MILLIS);
+            merged.put(m.noteId, m);
+        }
+        for (Map.Entry<UUID, Mutation> entry : pending.entrySet()) {
+            if (!merged.containsKey(entry.getKey())) {
+                merged.put(entry.getKey(), entry.getValue());
+            }
+        }
+        pending.clear();
+        pending.putAll(merged);
+    }
+
+    /** Time until the earliest pending edit may be written. */
+    private long delayUntilDue(long now) {
+        long due = Long.MAX_VALUE;
+        for (Mutation m : pending.values()) {
+            due = Math.min(due, m.retryAt);
+        }
+        return Math.max(0, due - now);
+    }
+
+    private Mutation mutationFor(UUID noteId) {
+        Mutation m = pending.get(noteId);
+        if (m == null) {
+            m = new Mutation(noteId);
+            pending.put(noteId, m);
+        }
+        return m;
+    }
+
+    private void scheduleFlush() {
+        scheduleFlush(COALESCE_WINDOW_MILLIS);
+    }
+
+    /**
+     * Flush after delayMillis unless a flush is already scheduled; that one
+     * schedules the next itself if edits it can't write yet remain.
+     */
+    private void scheduleFlush(long delayMillis) {
+        if (flushScheduled) return;
+        flushScheduled = true;
+        DatabaseExecutor.executeDelayed(() -> {
+            synchronized (this) {
+                flushScheduled = false;
+            }
+            flush();
+        }, delayMillis);
+    }
+}
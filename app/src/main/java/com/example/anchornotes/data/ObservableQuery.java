@@ -0,0 +1,116 @@
+package com.example.anchornotes.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A query that is re-run only when the tables it reads have changed.
+ *
+ * Call start() when the screen becomes visible and stop() when it goes
+ * away. start() runs the query only if it never ran or one of its tables
+ * was written since the last result (DatabaseChanges versions); while
+ * started, every write to those tables re-runs it. Bursts of writes
+ * don't stack up: a change that arrives while the query is running
+ * causes at most one more run, and each result is delivered once, on the
+ * main thread.
+ *
+ * All methods must be called on the main thread.
+ */
+public final class ObservableQuery<T> {
+
+    private static final String TAG = "ObservableQuery";
+    private static final long NEVER_LOADED = -1;
+
+    /** A result, or a failed run (logged, nothing delivered). */
+    private static final class Outcome<T> {
+        final T value;
+        final boolean failed;
+
+        Outcome(T value, boolean failed) {
+            this.value = value;
+            this.failed = failed;
+        }
+    }
+
+    private final DatabaseChanges changes;
+    private final Callable<T> query;
+    private final String[] tables;
+    private final DatabaseChanges.Listener onChange = this::load;
+
+    @Nullable private DatabaseExecutor.Callback<T> callback;
+    private long loadedVersion = NEVER_LOADED;
+    private boolean loading;
+    private boolean reloadPending;
+
+    public ObservableQuery(Context context, Callable<T> query, String... tables) {
+        this.changes = DatabaseChanges.getInstance(context);
+        this.query = query;
+        this.tables = tables;
+    }
+
+    /** Deliver results to the callback; queries now if anything changed since the last one. */
+    public void start(DatabaseExecutor.Callback<T> callback) {
+        if (this.callback != null) return;
+        this.callback = callback;
+        changes.addListener(onChange, tables);
+        if (loadedVersion != changes.version(tables)) {
+            load();
+        }
+    }
+
+    /** Stop re-running the query; a later start() catches up if needed. */
+    public void stop() {
+        if (callback == null) return;
+        callback = null;
+        changes.removeListener(onChange);
+    }
+
+    /** Forget the last result, so the next start() always queries. */
+    public void invalidate() {
+        loadedVersion = NEVER_LOADED;
+    }
+
+    private void load() {
+        if (loading) {
+            reloadPending = true;
+            return;
+        }
+        loading = true;
+        // Taken before the query runs: a write during the query leaves the
+        // result marked as stale rather than current
+        long version = changes.version(tables);
+
+        DatabaseExecutor.submit(this::run, outcome -> {
+            loading = false;
+            if (callback == null) {
+                // Stopped meanwhile: drop it, start() will query again
+                reloadPending = false;
+                return;
+            }
+            if (!outcome.failed) {
+                loadedVersion = version;
+                callback.onResult(outcome.value);
+            }
+
+            if (reloadPending) {
+                reloadPending = false;
+                if (loadedVersion != changes.version(tables)) {
+                    load();
+                }
+            }
+        });
+    }
+
+    private Outcome<T> run() {
+        try {
+            return new Outcome<>(query.call(), false);
+        } catch (Exception ex) {
+            Log.e(TAG, "Observed query failed", ex);
+            return new Outcome<>(null, true);
+        }
+    }
+}
@@ -2,12 +2,18 @@ package com.example.anchornotes.data;
 
 import androidx.annotation.NonNull;
 import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 import java.util.Date;
 import java.util.UUID;
 
-@Entity(tableName = "reminders")
+// noteId is indexed: getReminderForNote is the hottest lookup in the app
+@Entity(
+        tableName = "reminders",
+        indices = { @Index("noteId") }
+)
 public class Reminder {
 
     @PrimaryKey
@@ -41,6 +47,24 @@ public class Reminder {
     public Reminder() {
     }
 
+    /** A copy of other that shares nothing mutable with it. */
+    @Ignore
+    public Reminder(@NonNull Reminder other) {
+        this.id = other.id;
+        this.noteId = other.noteId;
+        this.type = other.type;
+        this.triggerTime = copyOf(other.triggerTime);
+        this.locationLat = other.locationLat;
+        this.locationLng = other.locationLng;
+        this.radiusMeters = other.radiusMeters;
+        this.isActive = other.isActive;
+        this.retiredAt = copyOf(other.retiredAt);
+    }
+
+    private static Date copyOf(Date date) {
+        return date != null ? new Date(date.getTime()) : null;
+    }
+
     // -------- Getters and Setters --------
 
     @NonNull
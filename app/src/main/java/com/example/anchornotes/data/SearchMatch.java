@@ -0,0 +1,34 @@
+package com.example.anchornotes.data;
+
+import androidx.annotation.NonNull;
+
+import java.util.UUID;
+
+/**
+ * One search hit before ranking: the note, whether it is pinned, and the
+ * raw FTS matchinfo blob (see NoteFts.MATCH_INFO) to score it from.
+ */
+public class SearchMatch {
+
+    @NonNull
+    private final UUID noteId;
+
+    private final boolean pinned;
+
+    @NonNull
+    private final byte[] matchInfo;
+
+    public SearchMatch(@NonNull UUID noteId, boolean pinned, @NonNull byte[] matchInfo) {
+        this.noteId = noteId;
+        this.pinned = pinned;
+        this.matchInfo = matchInfo;
+    }
+
+    @NonNull
+    public UUID getNoteId() { return noteId; }
+
+    public boolean isPinned() { return pinned; }
+
+    @NonNull
+    public byte[] getMatchInfo() { return matchInfo; }
+}
@@ -0,0 +1,166 @@
+package com.example.anchornotes.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text into search tokens for notes_fts.
+ *
+ * Runs of letters and digits become word tokens, except runs of Chinese,
+ * Japanese or Korean characters: those
+ * languages don't separate words with spaces, so a whole sentence would be
+ * one token and a word inside it could never be found. A CJK run is
+ * emitted as overlapping character bigrams instead ("会议记录" gives "会议",
+ * "议记", "记录"), and a lone CJK character as itself. At index time each
+ * run also ends with its last character alone, so a one-character query
+ * (a prefix term) finds it at the end of a run too.
+ *
+ * The FTS tokenizer (unicode61) can't be replaced from Java, so the
+ * bigrams are written to their own notes_fts column (see cjkIndexText),
+ * cut from text folded by TextNormalizer; query bigrams are folded the
+ * same way. Query words are not: title, content and tags are indexed as
+ * written and folded only by unicode61, which folds query terms the same
+ * way, so folding them any further here would make them miss.
+ */
+public final class SearchTokenizer {
+
+    private SearchTokenizer() { }
+
+    /**
+     * Query tokens of text in order (duplicates kept); empty for null or
+     * blank. Words keep their characters, with only ASCII letters lower-cased
+     * so "OR"/"NOT" are never read as FTS operators.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+
+        StringBuilder word = new StringBuilder();
+        StringBuilder run = new StringBuilder();
+
+        for (int i = 0; i <= text.length(); ) {
+            int cp = i < text.length() ? text.codePointAt(i) : ' ';
+            i += i < text.length() ? Character.charCount(cp) : 1;
+
+            if (isCjk(cp)) {
+                flushWord(word, tokens);
+                run.appendCodePoint(cp);
+                continue;
+            }
+            if (run.length() > 0) {
+                tokens.addAll(tokenize(run.toString(), false));
+                run.setLength(0);
+            }
+            if (isWordChar(cp)) {
+                word.appendCodePoint(cp >= 'A' && cp <= 'Z' ? cp + ('a' - 'A') : cp);
+            } else {
+                flushWord(word, tokens);
+            }
+        }
+        return tokens;
+    }
+
+    /** Folded tokens, as written to the cjk column (forIndex) or matched against it. */
+    private static List<String> tokenize(String text, boolean forIndex) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        String folded = TextNormalizer.normalize(text);
+
+        StringBuilder word = new StringBuilder();
+        // Code points of the current CJK run
+        List<Integer> run = new ArrayList<>();
+
+        for (int i = 0; i <= folded.length(); ) {
+            int cp = i < folded.length() ? folded.codePointAt(i) : ' ';
+            i += i < folded.length() ? Character.charCount(cp) : 1;
+
+            if (isCjk(cp)) {
+                flushWord(word, tokens);
+                run.add(cp);
+            } else if (Character.isLetterOrDigit(cp)) {
+                flushRun(run, tokens, forIndex);
+                word.appendCodePoint(cp);
+            } else {
+                flushWord(word, tokens);
+                flushRun(run, tokens, forIndex);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * The CJK tokens of the given texts, space-separated, for the notes_fts
+     * "cjk" column; null if none of the texts has CJK characters, which is
+     * the common case and costs one scan.
+     */
+    public static String cjkIndexText(String... texts) {
+        StringBuilder sb = null;
+        for (String text : texts) {
+            if (!containsCjk(text)) continue;
+            for (String token : tokenize(text, true)) {
+                if (!isCjk(token.codePointAt(0))) continue;
+                if (sb == null) {
+                    sb = new StringBuilder();
+                } else {
+                    sb.append(' ');
+                }
+                sb.append(token);
+            }
+        }
+        return sb != null ? sb.toString() : null;
+    }
+
+    public static boolean containsCjk(String text) {
+        if (text == null) return false;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            if (isCjk(cp)) return true;
+            i += Character.charCount(cp);
+        }
+        return false;
+    }
+
+    // unicode61 keeps combining marks inside tokens
+    private static boolean isWordChar(int codePoint) {
+        if (Character.isLetterOrDigit(codePoint)) return true;
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK
+                || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK;
+    }
+
+    static boolean isCjk(int codePoint) {
+        // Long vowel marks, kana voicing marks and the iteration mark are
+        // script COMMON or INHERITED but part of words
+        switch (codePoint) {
+            case 0x3005: case 0x3099: case 0x309A: case 0x309B: case 0x309C:
+            case 0x30FC: case 0xFF70: case 0xFF9E: case 0xFF9F:
+                return true;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static void flushRun(List<Integer> run, List<String> tokens, boolean forIndex) {
+        if (run.isEmpty()) return;
+        for (int i = 0; i + 1 < run.size(); i++) {
+            StringBuilder bigram = new StringBuilder(4);
+            bigram.appendCodePoint(run.get(i)).appendCodePoint(run.get(i + 1));
+            tokens.add(bigram.toString());
+        }
+        if (run.size() == 1 || forIndex) {
+            tokens.add(new String(Character.toChars(run.get(run.size() - 1))));
+        }
+        run.clear();
+    }
+}
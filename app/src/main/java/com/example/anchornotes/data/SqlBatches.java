@@ -0,0 +1,44 @@
+package com.example.anchornotes.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Splits id lists for "WHERE id IN (:ids)" queries.
+ *
+ * The SQLite shipped with older Android versions allows at most 999 bound
+ * arguments per statement, so bulk operations run one statement per chunk
+ * (inside a single transaction) instead of one per row.
+ */
+final class SqlBatches {
+
+    /** Ids per IN (...) list; leaves room for a few extra arguments. */
+    static final int MAX_IDS = 500;
+
+    private SqlBatches() { }
+
+    static <T> List<List<T>> chunks(List<T> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (ids.size() <= MAX_IDS) {
+            return Collections.singletonList(ids);
+        }
+        List<List<T>> chunks = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += MAX_IDS) {
+            chunks.add(ids.subList(start, Math.min(ids.size(), start + MAX_IDS)));
+        }
+        return chunks;
+    }
+
+    /** "?, ?, ?" with count placeholders, for IN lists built by hand. */
+    static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+}
@@ -5,8 +5,13 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -22,21 +27,144 @@ public interface TagDao {
     List<Tag> getAllTags();
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertTag(Tag tag);
+    void insertTagRow(Tag tag);
 
     @Delete
-    void deleteTag(Tag tag);
+    void deleteTagRow(Tag tag);
+
+    /** Save a tag (new or renamed) and index its name for fuzzy search. */
+    @Transaction
+    default void insertTag(Tag tag) {
+        insertTagRow(tag);
+        deleteTagTrigrams(tag.getId());
+        long[] grams = Trigrams.of(tag.getName());
+        List<TagTrigram> rows = new ArrayList<>(grams.length);
+        for (long gram : grams) {
+            rows.add(new TagTrigram(gram, tag.getId()));
+        }
+        insertTagTrigrams(rows);
+    }
+
+    /** Delete a tag and drop its name from the search indexes of every tagged note. */
+    @Transaction
+    default void deleteTag(Tag tag) {
+        deleteTagRow(tag);
+        deleteTagTrigrams(tag.getId());
+        reindexNotesForTag(tag.getId());
+    }
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertTagTrigrams(List<TagTrigram> trigrams);
+
+    @Query("DELETE FROM tag_trigrams WHERE tagId = :tagId")
+    void deleteTagTrigrams(UUID tagId);
 
     // ---------------- NOTE ↔ TAG MAPPINGS ----------------
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void insertNoteTag(NoteTag noteTag);
+    void insertNoteTagRow(NoteTag noteTag);
 
     @Delete
-    void deleteNoteTag(NoteTag noteTag);
+    void deleteNoteTagRow(NoteTag noteTag);
 
     @Query("DELETE FROM note_tags WHERE noteId = :noteId")
-    void deleteTagsForNote(UUID noteId);
+    void deleteTagRowsForNote(UUID noteId);
+
+    @Query("SELECT tagId FROM note_tags WHERE noteId = :noteId")
+    List<UUID> getTagIdsForNote(UUID noteId);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertNoteTagRows(List<NoteTag> noteTags);
+
+    @Query("DELETE FROM note_tags WHERE noteId = :noteId AND tagId IN (:tagIds)")
+    void deleteNoteTagRows(UUID noteId, List<UUID> tagIds);
+
+    /**
+     * Make tagIds the note's exact tag set in one transaction: only removed
+     * mappings are deleted and only new ones inserted, and readers never see
+     * the note half-tagged. The search entry is rebuilt once, if anything
+     * changed.
+     */
+    @Transaction
+    default void replaceTagsForNote(UUID noteId, Collection<UUID> tagIds) {
+        Set<UUID> wanted = new HashSet<>();
+        if (tagIds != null) {
+            for (UUID tagId : tagIds) {
+                if (tagId != null) wanted.add(tagId);
+            }
+        }
+
+        List<UUID> removed = new ArrayList<>();
+        for (UUID current : getTagIdsForNote(noteId)) {
+            if (!wanted.remove(current)) {
+                removed.add(current);
+            }
+        }
+        // What's left in wanted wasn't attached yet
+
+        if (removed.isEmpty() && wanted.isEmpty()) {
+            return;
+        }
+        if (!removed.isEmpty()) {
+            deleteNoteTagRows(noteId, removed);
+        }
+        if (!wanted.isEmpty()) {
+            List<NoteTag> added = new ArrayList<>(wanted.size());
+            for (UUID tagId : wanted) {
+                added.add(new NoteTag(noteId, tagId));
+            }
+            insertNoteTagRows(added);
+        }
+        reindexNote(noteId);
+    }
+
+    @Transaction
+    default void insertNoteTag(NoteTag noteTag) {
+        insertNoteTagRow(noteTag);
+        reindexNote(noteTag.getNoteId());
+    }
+
+    @Transaction
+    default void deleteNoteTag(NoteTag noteTag) {
+        deleteNoteTagRow(noteTag);
+        reindexNote(noteTag.getNoteId());
+    }
+
+    @Transaction
+    default void deleteTagsForNote(UUID noteId) {
+        deleteTagRowsForNote(noteId);
+        reindexNote(noteId);
+    }
+
+    /** Put one tag on many notes (already-tagged notes are left alone). */
+    @Transaction
+    default void addTagToNotes(UUID tagId, List<UUID> noteIds) {
+        for (List<UUID> chunk : SqlBatches.chunks(noteIds)) {
+            List<NoteTag> rows = new ArrayList<>(chunk.size());
+            for (UUID noteId : chunk) {
+                rows.add(new NoteTag(noteId, tagId));
+            }
+            insertNoteTagRows(rows);
+            reindexNotes(chunk);
+        }
+    }
+
+    // ---------------- SEARCH INDEX ----------------
+
+    // Tag changes only refresh the tags column; title and content stay indexed.
+
+    @Query(NoteFts.UPDATE_TAGS +
+            "WHERE rowid IN (SELECT rowid FROM notes WHERE id = :noteId)")
+    void reindexNote(UUID noteId);
+
+    @Query(NoteFts.UPDATE_TAGS +
+            "WHERE rowid IN (SELECT rowid FROM notes WHERE id IN (:noteIds))")
+    void reindexNotes(List<UUID> noteIds);
+
+    @Query(NoteFts.UPDATE_TAGS +
+            "WHERE rowid IN (SELECT n.rowid FROM notes n " +
+            "INNER JOIN note_tags nt ON nt.noteId = n.id WHERE nt.tagId = :tagId)")
+    void reindexNotesForTag(UUID tagId);
 
     @Query("SELECT t.* FROM tags t " +
             "INNER JOIN note_tags nt ON t.id = nt.tagId " +
@@ -44,6 +172,11 @@ public interface TagDao {
             "ORDER BY t.name ASC")
     List<Tag> getTagsForNote(UUID noteId);
 
+    // Whole note -> tag mapping in one pass (feeds the in-memory TagIndex)
+    @Query("SELECT nt.noteId AS noteId, t.id AS tagId, t.name AS name " +
+            "FROM note_tags nt INNER JOIN tags t ON t.id = nt.tagId")
+    List<NoteTagName> getAllTagNames();
+
     @Query("SELECT n.* FROM notes n " +
             "INNER JOIN note_tags nt ON n.id = nt.noteId " +
             "WHERE nt.tagId = :tagId " +
@@ -1,19 +1,27 @@
 package com.example.anchornotes.data;
 
 import android.content.Context;
+import android.util.Pair;
 
 import java.util.List;
 import java.util.UUID;
 
 /**
  * Repository for tag data, wrapping TagDao.
+ *
+ * Every method here must run off the main thread: callers go through the
+ * domain managers on DatabaseExecutor. observe* returns an ObservableQuery
+ * that re-runs when its tables change.
  */
 public class TagRepository {
 
+    private final Context context;
+    private final LocalDatabase db;
     private final TagDao tagDao;
 
     public TagRepository(Context context) {
-        LocalDatabase db = LocalDatabase.getInstance(context.getApplicationContext());
+        this.context = context.getApplicationContext();
+        this.db = LocalDatabase.getInstance(this.context);
         this.tagDao = db.tagDao();
     }
 
@@ -41,11 +49,39 @@ public class TagRepository {
         tagDao.deleteTagsForNote(noteId);
     }
 
+    public void replaceTagsForNote(UUID noteId, List<UUID> tagIds) {
+        tagDao.replaceTagsForNote(noteId, tagIds);
+    }
+
+    public void addTagToNotes(UUID tagId, List<UUID> noteIds) {
+        tagDao.addTagToNotes(tagId, noteIds);
+    }
+
     public List<Tag> getTagsForNote(UUID noteId) {
         return tagDao.getTagsForNote(noteId);
     }
 
+    /** getTagsForNote that re-runs only when tags or note_tags change. */
+    public ObservableQuery<List<Tag>> observeTagsForNote(UUID noteId) {
+        return new ObservableQuery<>(context, () -> getTagsForNote(noteId),
+                DatabaseChanges.TAGS, DatabaseChanges.NOTE_TAGS);
+    }
+
     public List<Note> getNotesForTag(UUID tagId) {
         return tagDao.getNotesForTag(tagId);
     }
+
+    /** Every note's tag mappings (with names) in one query. */
+    public List<NoteTagName> getAllTagNames() {
+        return tagDao.getAllTagNames();
+    }
+
+    /**
+     * All tags and every note's tag mappings, read in one transaction so
+     * the two lists agree even while tags are being written.
+     */
+    public Pair<List<Tag>, List<NoteTagName>> getTagMap() {
+        return db.runInTransaction(
+                () -> Pair.create(tagDao.getAllTags(), tagDao.getAllTagNames()));
+    }
 }
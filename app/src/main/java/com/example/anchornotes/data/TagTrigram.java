@@ -0,0 +1,35 @@
+package com.example.anchornotes.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+import java.util.UUID;
+
+/**
+ * Trigrams of tag names (see NoteTrigram); a fuzzy search reaches the
+ * tagged notes through note_tags. Rewritten by TagDao when a tag is saved
+ * or deleted.
+ */
+@Entity(tableName = "tag_trigrams",
+        primaryKeys = {"gram", "tagId"},
+        indices = {@Index("tagId")})
+public class TagTrigram {
+
+    private long gram;
+
+    @NonNull
+    private UUID tagId;
+
+    public TagTrigram(long gram, @NonNull UUID tagId) {
+        this.gram = gram;
+        this.tagId = tagId;
+    }
+
+    public long getGram() { return gram; }
+    public void setGram(long gram) { this.gram = gram; }
+
+    @NonNull
+    public UUID getTagId() { return tagId; }
+    public void setTagId(@NonNull UUID tagId) { this.tagId = tagId; }
+}
@@ -0,0 +1,65 @@
+package com.example.anchornotes.data;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Folds text to the form the trigram and CJK bigram indexes compare (see
+ * Trigrams, SearchTokenizer): NFKD decomposition, accents
+ * removed from Latin, Greek and Cyrillic letters, recomposed, then
+ * case-folded. "Café", "CAFE" and "ｃａｆé" all become "cafe". Marks in
+ * other scripts are kept and recomposed, so Hangul syllables and Japanese
+ * voiced kana ("が") come out as they went in.
+ *
+ * Meant to run once when a note is written (see NoteDao.indexForSearch),
+ * and once per query on the search text, never per row while querying.
+ * The FTS title, content and tags columns are not folded with it:
+ * unicode61 folds those, and the query words matched against them.
+ *
+ * No folded copy of the title or body is stored in notes: accent- and
+ * case-insensitive search comes from the indexes above, and title sorting
+ * from the locale collation keys (TitleSortKeys), which already rank
+ * "café" with "Cafe".
+ */
+public final class TextNormalizer {
+
+    private TextNormalizer() { }
+
+    /** Normalized form of text, null for null. */
+    public static String normalize(String text) {
+        if (text == null) return null;
+
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        boolean dropMarks = false;
+        for (int i = 0; i < decomposed.length(); ) {
+            int cp = decomposed.codePointAt(i);
+            i += Character.charCount(cp);
+            if (Character.getType(cp) == Character.NON_SPACING_MARK) {
+                if (dropMarks) continue;
+            } else {
+                dropMarks = hasFoldableAccents(cp);
+            }
+            sb.appendCodePoint(cp);
+        }
+        String composed = Normalizer.normalize(sb, Normalizer.Form.NFC);
+        // Upper first so e.g. "ß" folds to "ss" like "SS" does
+        return composed.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean hasFoldableAccents(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.LATIN
+                || script == Character.UnicodeScript.GREEK
+                || script == Character.UnicodeScript.CYRILLIC;
+    }
+
+    /** True if normalize() may change more than letter case (any non-ASCII char). */
+    static boolean needsFolding(String text) {
+        if (text == null) return false;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.anchornotes.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.icu.text.Collator;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.util.Locale;
+
+/**
+ * Collation keys for title sorting (notes.titleSortKey).
+ *
+ * A key is the device locale's ICU Collator sort key for the title. ICU
+ * keys are built to be compared byte by byte, which is exactly how SQLite
+ * compares BLOBs, so an indexed ORDER BY titleSortKey sorts the way the
+ * locale expects ("Äpfel" with "Apfel", "ch" after "h" in Czech) without
+ * any collation work at query time. NoteDao computes the key on every
+ * save.
+ *
+ * Keys are only valid for the locale they were built with. The locale is
+ * remembered in preferences (the migration that first builds the keys
+ * reports its locale through keysBuiltFor(), which only counts once the
+ * upgrade has committed), and when the device locale differs,
+ * refreshIfLocaleChanged() rebuilds every key in the background, one
+ * batch per write transaction so other writes still get through.
+ */
+public final class TitleSortKeys {
+
+    private static final String TAG = "TitleSortKeys";
+    private static final String PREFS = "title_sort_keys";
+    private static final String KEY_LOCALE = "locale";
+
+    /** Notes re-keyed per write transaction. */
+    static final int REKEY_BATCH_SIZE = 500;
+
+    private static Locale cachedLocale;
+    private static Collator cachedCollator;
+    private static boolean rekeying;
+    // Locale last checked against the stored one in this process
+    private static String checkedLocale;
+    // Locale a migration built every key for, while its upgrade may still
+    // roll back
+    private static String uncommittedLocale;
+    // The same once the upgrade committed, not yet stored
+    private static String migratedLocale;
+
+    private TitleSortKeys() { }
+
+    /** Sort key of title for the current locale; a null title sorts like "". */
+    public static byte[] of(String title) {
+        Collator collator = collator();
+        // ICU collators are not thread-safe
+        synchronized (collator) {
+            return collator.getCollationKey(title != null ? title : "").toByteArray();
+        }
+    }
+
+    private static synchronized Collator collator() {
+        Locale locale = Locale.getDefault();
+        if (cachedCollator == null || !locale.equals(cachedLocale)) {
+            cachedCollator = Collator.getInstance(locale);
+            cachedLocale = locale;
+        }
+        return cachedCollator;
+    }
+
+    /**
+     * Rebuild all keys in the background if they were made for another
+     * locale. The check itself runs on DatabaseExecutor and only once per
+     * locale per process, so this is safe to call from the main thread and
+     * often.
+     */
+    public static void refreshIfLocaleChanged(Context context, LocalDatabase db) {
+        String localeTag = Locale.getDefault().toLanguageTag();
+        synchronized (TitleSortKeys.class) {
+            if (localeTag.equals(checkedLocale)) return;
+            checkedLocale = localeTag;
+        }
+        Context appContext = context.getApplicationContext();
+        DatabaseExecutor.execute(() -> checkLocale(appContext, db));
+    }
+
+    /**
+     * Called by the migration that keys every title, with the locale it
+     * used. It runs inside the upgrade transaction, so the locale is held
+     * back until onDatabaseOpened(); a failed upgrade never gets there.
+     */
+    static synchronized void keysBuiltFor(String localeTag) {
+        uncommittedLocale = localeTag;
+    }
+
+    /**
+     * Called from LocalDatabase's onOpen, which Room runs after any upgrade
+     * transaction has committed: keys a migration built are now on disk.
+     */
+    static synchronized void onDatabaseOpened() {
+        if (uncommittedLocale != null) {
+            migratedLocale = uncommittedLocale;
+            uncommittedLocale = null;
+        }
+    }
+
+    private static void checkLocale(Context context, LocalDatabase db) {
+        // Opening the database runs any pending migration first
+        db.getOpenHelper().getWritableDatabase();
+
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        String stored;
+        synchronized (TitleSortKeys.class) {
+            stored = migratedLocale;
+            migratedLocale = null;
+        }
+        if (stored != null) {
+            prefs.edit().putString(KEY_LOCALE, stored).apply();
+        } else {
+            stored = prefs.getString(KEY_LOCALE, null);
+        }
+
+        if (!Locale.getDefault().toLanguageTag().equals(stored)) {
+            startRekey(prefs, db);
+        }
+    }
+
+    private static void startRekey(SharedPreferences prefs, LocalDatabase db) {
+        synchronized (TitleSortKeys.class) {
+            if (rekeying) return;
+            rekeying = true;
+        }
+        String localeTag = Locale.getDefault().toLanguageTag();
+        DatabaseExecutor.execute(() -> rekeyFrom(prefs, db, localeTag, Long.MIN_VALUE));
+    }
+
+    /** Re-key one batch after lastRowId, then queue the next one. */
+    private static void rekeyFrom(SharedPreferences prefs, LocalDatabase db,
+                                  String localeTag, long lastRowId) {
+        long next;
+        try {
+            next = db.runInTransaction(() -> rekeyBatch(db, lastRowId));
+        } catch (RuntimeException ex) {
+            Log.w(TAG, "Re-keying titles failed", ex);
+            synchronized (TitleSortKeys.class) {
+                rekeying = false;
+                checkedLocale = null; // try again on the next refresh
+            }
+            return;
+        }
+
+        if (next != Long.MIN_VALUE) {
+            DatabaseExecutor.execute(() -> rekeyFrom(prefs, db, localeTag, next));
+            return;
+        }
+
+        prefs.edit().putString(KEY_LOCALE, localeTag).apply();
+        synchronized (TitleSortKeys.class) {
+            rekeying = false;
+        }
+        // The locale may have changed again while this ran
+        if (!localeTag.equals(Locale.getDefault().toLanguageTag())) {
+            startRekey(prefs, db);
+        }
+    }
+
+    /** Returns the last rowid re-keyed, or Long.MIN_VALUE once past the end. */
+    private static long rekeyBatch(LocalDatabase db, long afterRowId) {
+        SupportSQLiteDatabase sql = db.getOpenHelper().getWritableDatabase();
+        SupportSQLiteStatement update = sql.compileStatement(
+                "UPDATE notes SET titleSortKey = ? WHERE rowid = ?");
+
+        long last = Long.MIN_VALUE;
+        int count = 0;
+        try (Cursor c = sql.query("SELECT rowid, title FROM notes WHERE rowid > ? " +
+                "ORDER BY rowid LIMIT " + REKEY_BATCH_SIZE, new Object[]{afterRowId})) {
+            while (c.moveToNext()) {
+                last = c.getLong(0);
+                update.clearBindings();
+                update.bindBlob(1, of(c.getString(1)));
+                update.bindLong(2, last);
+                update.executeUpdateDelete();
+                count++;
+            }
+        } finally {
+            DatabaseMigrations.close(update);
+        }
+        return count == REKEY_BATCH_SIZE ? last : Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.anchornotes.data;
+
+import java.util.Arrays;
+
+/**
+ * Character trigrams for typo-tolerant search (see NoteTrigram).
+ *
+ * Text is folded by TextNormalizer (so "Café" and "cafe" share grams) and
+ * split into words (letters and digits), and each
+ * word is padded with a space on both sides before cutting it into
+ * overlapping 3-character grams: "meeting" gives " me", "mee", "eet", ...,
+ * "ng ". A misspelling like "meetng" still shares most of those, including
+ * the word's start and end. (pg_trgm also emits a "  m" gram per word; it
+ * matches every word with that first letter, so it is left out to keep
+ * the index lookups selective.) Each gram is packed into a long so the
+ * index stays an integer B-tree.
+ */
+public final class Trigrams {
+
+    /**
+     * Fraction of the search text's grams a note must contain to count as
+     * a fuzzy match.
+     */
+    public static final double MIN_SIMILARITY = 0.5;
+
+    /** Grams taken from search text; longer input is cut to these. */
+    public static final int MAX_QUERY_GRAMS = 128;
+
+    private Trigrams() { }
+
+    /** Distinct grams of all the given texts (nulls skipped), sorted. */
+    public static long[] of(String... texts) {
+        long[] grams = new long[64];
+        int count = 0;
+
+        for (String raw : texts) {
+            if (raw == null) continue;
+            String text = TextNormalizer.normalize(raw);
+            char prev2 = 0;
+            char prev1 = ' ';
+            boolean inWord = false;
+
+            for (int i = 0; i <= text.length(); i++) {
+                char c = i < text.length() ? text.charAt(i) : ' ';
+                boolean wordChar = Character.isLetterOrDigit(c);
+                if (!wordChar && !inWord) continue;
+
+                char next = wordChar ? c : ' ';
+                if (prev2 != 0) {
+                    if (count == grams.length) {
+                        grams = Arrays.copyOf(grams, count * 2);
+                    }
+                    grams[count++] = pack(prev2, prev1, next);
+                }
+
+                if (wordChar) {
+                    prev2 = prev1;
+                    prev1 = next;
+                    inWord = true;
+                } else {
+                    // Word ended with "x "; the next one starts padded again
+                    prev2 = 0;
+                    prev1 = ' ';
+                    inWord = false;
+                }
+            }
+        }
+
+        Arrays.sort(grams, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || grams[i] != grams[distinct - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    /** Grams of search text, at most MAX_QUERY_GRAMS of them. */
+    public static long[] ofQuery(String text) {
+        long[] grams = of(text);
+        return grams.length > MAX_QUERY_GRAMS ? Arrays.copyOf(grams, MAX_QUERY_GRAMS) : grams;
+    }
+
+    /** Notes must share at least this many of queryGrams grams. */
+    public static int minHits(int queryGrams) {
+        return Math.max(1, (int) Math.ceil(queryGrams * MIN_SIMILARITY));
+    }
+
+    static long pack(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+}
@@ -3,6 +3,7 @@ package com.example.anchornotes.domain;
 import android.content.Context;
 import android.location.Location;
 
+import com.example.anchornotes.data.DatabaseExecutor;
 import com.example.anchornotes.data.LocationProviderService;
 
 /**
@@ -75,15 +76,17 @@ public class MapController {
             return;
         }
 
-        // Delegate to ReminderController (domain/presentation bridge).
-        ReminderController.LocationReminderResult result =
-                reminderController.addLocationReminderWithCoordinates(
-                        noteId,
-                        latitude,
-                        longitude,
-                        DEFAULT_RADIUS_METERS
-                );
+        // Delegate to ReminderController (domain/presentation bridge),
+        // off the main thread since it writes to the database.
+        DatabaseExecutor.submit(() -> reminderController.addLocationReminderWithCoordinates(
+                noteId,
+                latitude,
+                longitude,
+                DEFAULT_RADIUS_METERS
+        ), this::onLocationReminderResult);
+    }
 
+    private void onLocationReminderResult(ReminderController.LocationReminderResult result) {
         if (result == null) {
             if (listener != null) {
                 listener.showError("Failed to create location reminder.");
@@ -3,7 +3,9 @@ package com.example.anchornotes.domain;
 import android.content.Context;
 import android.util.Pair;
 
+import com.example.anchornotes.data.DatabaseExecutor;
 import com.example.anchornotes.data.Note;
+import com.example.anchornotes.data.ObservableQuery;
 import com.example.anchornotes.data.Reminder;
 
 import java.util.UUID;
@@ -16,6 +18,10 @@ import java.util.UUID;
  * - Save note
  * - Delete note
  * - Delegate reminder setup events
+ *
+ * Database work runs on DatabaseExecutor; Listener callbacks arrive on
+ * the main thread. While observed, the note is re-loaded only when its
+ * row, body or reminder is written, not on every return to the screen.
  */
 public class NoteDetailController {
 
@@ -32,6 +38,10 @@ public class NoteDetailController {
     private final ReminderManager reminderManager;
     private final Listener listener;
 
+    // Note + reminder of the open note, re-queried only when they change
+    private ObservableQuery<Pair<Note, Reminder>> noteQuery;
+    private UUID observedNoteId;
+
     public NoteDetailController(Context context, Listener listener) {
         Context app = context.getApplicationContext();
         this.noteManager = new NoteManager(app);
@@ -42,10 +52,30 @@ public class NoteDetailController {
     // ------------------------------------------------------------
     // Load existing note (with reminder)
     // ------------------------------------------------------------
-    public void loadExistingNote(UUID noteId) {
-        Pair<Note, Reminder> pair = noteManager.getNoteWithReminder(noteId);
-        if (listener != null) {
-            listener.onNoteLoaded(pair.first, pair.second);
+
+    /**
+     * Deliver the note + reminder now (if they changed since the last
+     * delivery) and again after every write to them, until stopObserving().
+     * Call from onStart; results go to Listener.onNoteLoaded.
+     */
+    public void startObserving(UUID noteId) {
+        if (noteId == null) return;
+        if (noteQuery == null || !noteId.equals(observedNoteId)) {
+            stopObserving();
+            noteQuery = noteManager.observeNoteWithReminder(noteId);
+            observedNoteId = noteId;
+        }
+        noteQuery.start(pair -> {
+            if (listener != null) {
+                listener.onNoteLoaded(pair.first, pair.second);
+            }
+        });
+    }
+
+    /** Stop re-querying (call from onStop). */
+    public void stopObserving() {
+        if (noteQuery != null) {
+            noteQuery.stop();
         }
     }
 
@@ -62,28 +92,32 @@ public class NoteDetailController {
 
         if (noteId == null) {
             // NEW NOTE
-            Note created = noteManager.createNote(title, content);
             // Caller will typically finish() and reopen for editing if needed.
-            if (listener != null) {
-                listener.onNoteSaved();
-            }
+            DatabaseExecutor.execute(() -> noteManager.createNote(title, content), () -> {
+                if (listener != null) {
+                    listener.onNoteSaved();
+                }
+            });
         } else {
             // UPDATE NOTE
-            Note existing = noteManager.getNote(noteId);
-            if (existing == null) {
-                if (listener != null) {
+            DatabaseExecutor.submit(() -> {
+                // Full body, so the edited content replaces all of it
+                Note existing = noteManager.getNoteWithBody(noteId);
+                if (existing == null) {
+                    return false;
+                }
+                existing.setTitle(title);
+                existing.setContent(content);
+                noteManager.updateNote(existing);
+                return true;
+            }, saved -> {
+                if (listener == null) return;
+                if (saved) {
+                    listener.onNoteSaved();
+                } else {
                     listener.showError("Error: Note not found");
                 }
-                return;
-            }
-
-            existing.setTitle(title);
-            existing.setContent(content);
-            noteManager.updateNote(existing);
-
-            if (listener != null) {
-                listener.onNoteSaved();
-            }
+            });
         }
     }
 
@@ -92,10 +126,11 @@ public class NoteDetailController {
     // ------------------------------------------------------------
     public void deleteNote(UUID noteId) {
         if (noteId == null) return;
-        noteManager.deleteNote(noteId);
-        if (listener != null) {
-            listener.onNoteDeleted();
-        }
+        DatabaseExecutor.execute(() -> noteManager.deleteNote(noteId), () -> {
+            if (listener != null) {
+                listener.onNoteDeleted();
+            }
+        });
     }
 
     // ------------------------------------------------------------
@@ -1,8 +1,17 @@
 package com.example.anchornotes.domain;
 
 import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.os.SystemClock;
+import android.util.Log;
 
-import com.example.anchornotes.data.Note;
+import com.example.anchornotes.data.DatabaseChanges;
+import com.example.anchornotes.data.DatabaseExecutor;
+import com.example.anchornotes.data.NoteSummary;
+import com.example.anchornotes.data.Tag;
 
 import java.util.List;
 import java.util.UUID;
@@ -13,36 +22,348 @@ import java.util.UUID;
  * This matches the design document's NoteListController, keeping the
  * Activity focused on view logic while this class coordinates with
  * the domain NoteManager.
+ *
+ * Queries run on DatabaseExecutor's reader pool, so paging isn't held up
+ * by background reminder writes; Listener callbacks arrive on the main
+ * thread. Results of a superseded loadNotes() call are dropped.
+ *
+ * Between startObserving() and stopObserving() the current query is re-run
+ * whenever a table the list shows is written (InvalidationTracker, via
+ * DatabaseChanges). startObserving() itself only re-queries if something
+ * changed while the screen was away, so coming back costs nothing when
+ * nothing changed.
+ *
+ * Search-as-you-type goes through search(): input is debounced, the query
+ * runs on the reader pool with a CancellationSignal, and any load still
+ * running for older text is cancelled, so only the newest result arrives.
+ * Keystroke-to-result latency is logged under "NoteSearch".
+ *
+ * A search with no exact hits falls back to a fuzzy (trigram) search in
+ * the same load, so a typo like "meetng" still shows the notes it was
+ * probably meant to find; those arrive through onSimilarNotesLoaded().
  */
 public class NoteListController {
 
     public interface Listener {
-        /** Called when notes have been loaded from the domain layer. */
-        void onNotesLoaded(List<Note> notes);
+        /**
+         * Called when the first page of list rows has been loaded.
+         * @param totalCount number of notes matching the query overall
+         */
+        void onNotesLoaded(List<NoteSummary> items, int totalCount);
+
+        /**
+         * Like onNotesLoaded, but the search text matched nothing exactly
+         * and these are the most similarly spelled notes instead.
+         */
+        default void onSimilarNotesLoaded(List<NoteSummary> items, int totalCount) {
+            onNotesLoaded(items, totalCount);
+        }
+
+        /** Called with the next page after loadMoreNotes(). */
+        void onMoreNotesLoaded(List<NoteSummary> items);
+
+        /**
+         * A load or next page failed (the error is logged). The list keeps
+         * what it showed; the next change or scroll tries again.
+         */
+        default void onNotesLoadFailed() { }
 
         /** Navigate to the detail screen for the given note. */
         void navigateToNoteDetail(UUID noteId);
 
         /** Navigate to the screen for creating a brand new note. */
         void navigateToCreateNote();
+
+        /** A multi-select action finished (the list refreshes on its own while observed). */
+        void onBulkActionDone();
     }
 
     private final NoteManager noteManager;
+    private final TagManager tagManager;
+    private final ReminderManager reminderManager;
     private final Listener listener;
+    private final DatabaseChanges changes;
+
+    // Tables whose writes can change what the list shows
+    private static final String[] LIST_TABLES = {
+            DatabaseChanges.NOTES, DatabaseChanges.REMINDERS,
+            DatabaseChanges.TAGS, DatabaseChanges.NOTE_TAGS
+    };
+
+    private final DatabaseChanges.Listener onListTablesChanged = this::refresh;
+
+    /** Typing pause after which the search actually runs. */
+    public static final long SEARCH_DEBOUNCE_MILLIS = 250;
+    private static final String SEARCH_LOG_TAG = "NoteSearch";
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingSearch;
+    // Signal of the load in flight; cancelled when a newer load supersedes it
+    private CancellationSignal inFlight;
+
+    // Pages through the current query; replaced on every loadNotes()
+    private NotePager pager;
+
+    // Bumped on every loadNotes() so late results from an older query are ignored
+    private int generation;
+    private boolean loadingMore;
+
+    // Rows delivered for the current query, and the table version they reflect
+    private int loadedCount;
+    private long loadedVersion = -1;
+    private boolean loading;
+    private boolean refreshPending;
+    private boolean observing;
 
     public NoteListController(Context context, Listener listener) {
-        this.noteManager = new NoteManager(context.getApplicationContext());
+        Context appContext = context.getApplicationContext();
+        this.changes = DatabaseChanges.getInstance(appContext);
+        this.noteManager = new NoteManager(appContext);
+        this.tagManager = new TagManager(appContext);
+        this.reminderManager = new ReminderManager(appContext);
         this.listener = listener;
     }
 
     /** Load all notes and deliver them back to the UI layer. */
     public void loadNotes() {
-        List<Note> notes = noteManager.getAllNotes();   // use domain manager
-        if (listener != null) {
-            listener.onNotesLoaded(notes);
+        loadNotes(NoteQuery.all());
+    }
+
+    /**
+     * Load the first page of notes described by the query (filter, sort,
+     * tag, search text) and deliver it back to the UI layer, already
+     * filtered and sorted. Later pages come from loadMoreNotes().
+     */
+    public void loadNotes(NoteQuery query) {
+        // The query already carries the latest search text
+        cancelPendingSearch();
+        load(query, NotePager.DEFAULT_PAGE_SIZE, 0);
+    }
+
+    /**
+     * The search text changed: load query once typing pauses for
+     * SEARCH_DEBOUNCE_MILLIS. Whatever is still running for older text is
+     * cancelled right away and its result never delivered.
+     */
+    public void search(NoteQuery query) {
+        long keystrokeAt = SystemClock.elapsedRealtime();
+        cancelPendingSearch();
+        supersedeInFlight();
+        pendingSearch = () -> {
+            pendingSearch = null;
+            load(query, NotePager.DEFAULT_PAGE_SIZE, keystrokeAt);
+        };
+        mainHandler.postDelayed(pendingSearch, SEARCH_DEBOUNCE_MILLIS);
+    }
+
+    private void cancelPendingSearch() {
+        if (pendingSearch != null) {
+            mainHandler.removeCallbacks(pendingSearch);
+            pendingSearch = null;
+        }
+    }
+
+    /** Stop the load in flight and make sure its result is dropped. */
+    private void supersedeInFlight() {
+        ++generation;
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+
+    /** Re-run the current query whenever the tables behind the list change. */
+    public void startObserving() {
+        if (observing) return;
+        observing = true;
+        changes.addListener(onListTablesChanged, LIST_TABLES);
+        if (loadedVersion != changes.version(LIST_TABLES)) {
+            refresh();
         }
     }
 
+    public void stopObserving() {
+        if (!observing) return;
+        observing = false;
+        changes.removeListener(onListTablesChanged);
+    }
+
+    /**
+     * Re-run the current query for as many rows as are already shown, so
+     * the list doesn't shrink back to one page under the user. A change
+     * arriving while a load is running causes one more load, not one each.
+     */
+    private void refresh() {
+        if (pager == null) return;
+        if (loading) {
+            refreshPending = true;
+            return;
+        }
+        if (pendingSearch != null) {
+            // The debounced search is about to load everything anyway
+            return;
+        }
+        // Back to the exact search: an edit may have made it match again
+        load(pager.getQuery().copy().fuzzy(false),
+                Math.max(NotePager.DEFAULT_PAGE_SIZE, loadedCount), 0);
+    }
+
+    /** First page of a load, with the pager that produced it. */
+    private static final class FirstPage {
+        final NotePager pager;
+        final List<NoteSummary> items;
+        final int totalCount;
+
+        FirstPage(NotePager pager, List<NoteSummary> items, int totalCount) {
+            this.pager = pager;
+            this.items = items;
+            this.totalCount = totalCount;
+        }
+    }
+
+    /**
+     * Load the first page (and total count) of query. keystrokeAt is the
+     * elapsedRealtime of the keystroke that caused it, 0 if none.
+     */
+    private void load(NoteQuery query, int firstPageSize, long keystrokeAt) {
+        supersedeInFlight();
+        NotePager newPager = new NotePager(noteManager, query, NotePager.DEFAULT_PAGE_SIZE);
+        pager = newPager;
+        loadingMore = false;
+        loading = true;
+        refreshPending = false;
+        final int gen = generation;
+        final CancellationSignal signal = new CancellationSignal();
+        inFlight = signal;
+        // Taken before the query: a write during it leaves the result stale
+        final long version = changes.version(LIST_TABLES);
+
+        DatabaseExecutor.submitRead(() -> {
+            try {
+                NotePager used = newPager;
+                List<NoteSummary> items = newPager.loadNextPage(firstPageSize, signal);
+                if (items.isEmpty() && hasSearchText(query) && !query.isFuzzy()) {
+                    NotePager fuzzyPager = new NotePager(noteManager,
+                            query.copy().fuzzy(true), NotePager.DEFAULT_PAGE_SIZE);
+                    List<NoteSummary> similar = fuzzyPager.loadNextPage(firstPageSize, signal);
+                    if (!similar.isEmpty()) {
+                        used = fuzzyPager;
+                        items = similar;
+                    }
+                }
+                int total = used.hasMore() ? used.countAll(signal) : items.size();
+                return new FirstPage(used, items, total);
+            } catch (OperationCanceledException ex) {
+                // Superseded by a newer load; its result is the one that counts
+                return null;
+            }
+        }, result -> {
+            if (gen != generation || result == null) return;
+            inFlight = null;
+            loading = false;
+            pager = result.pager;
+            loadedCount = result.items.size();
+            if (keystrokeAt > 0) {
+                Log.d(SEARCH_LOG_TAG, "\"" + query.getText() + "\": " + result.totalCount +
+                        " matches shown " + (SystemClock.elapsedRealtime() - keystrokeAt) +
+                        " ms after the last keystroke");
+            }
+            loadedVersion = version;
+            if (listener != null) {
+                if (result.pager.getQuery().isFuzzy()) {
+                    listener.onSimilarNotesLoaded(result.items, result.totalCount);
+                } else {
+                    listener.onNotesLoaded(result.items, result.totalCount);
+                }
+            }
+            if (refreshPending && observing) {
+                refreshPending = false;
+                if (loadedVersion != changes.version(LIST_TABLES)) {
+                    refresh();
+                }
+            }
+        }, error -> {
+            if (gen != generation) return;
+            inFlight = null;
+            loading = false;
+            // A retry right away would most likely fail the same way
+            refreshPending = false;
+            if (listener != null) {
+                listener.onNotesLoadFailed();
+            }
+        });
+    }
+
+    private static boolean hasSearchText(NoteQuery query) {
+        return query.getText() != null && !query.getText().trim().isEmpty();
+    }
+
+    /** Load the next page of the current query, if there is one. */
+    public void loadMoreNotes() {
+        if (pager == null || !pager.hasMore() || loadingMore) {
+            return;
+        }
+        loadingMore = true;
+        final int gen = generation;
+
+        DatabaseExecutor.submitRead(pager::loadNextPage, items -> {
+            if (gen != generation) return;
+            loadingMore = false;
+            loadedCount += items.size();
+            if (listener != null && !items.isEmpty()) {
+                listener.onMoreNotesLoaded(items);
+            }
+        }, error -> {
+            if (gen != generation) return;
+            loadingMore = false;
+            if (listener != null) {
+                listener.onNotesLoadFailed();
+            }
+        });
+    }
+
+    /** True if scrolling further can load more rows. */
+    public boolean hasMoreNotes() {
+        return pager != null && pager.hasMore();
+    }
+
+    // ------------------------------------------------------------------------
+    // Multi-select actions: each is one batch/transaction, not one per note
+    // ------------------------------------------------------------------------
+
+    public void deleteNotes(List<UUID> noteIds) {
+        runBulk(() -> noteManager.deleteNotes(noteIds));
+    }
+
+    public void setPinned(List<UUID> noteIds, boolean pinned) {
+        runBulk(() -> noteManager.setPinned(noteIds, pinned));
+    }
+
+    public void addTagToNotes(List<UUID> noteIds, UUID tagId) {
+        runBulk(() -> tagManager.addTagToNotes(tagId, noteIds));
+    }
+
+    public void clearReminders(List<UUID> noteIds) {
+        runBulk(() -> reminderManager.removeRemindersForNotes(noteIds));
+    }
+
+    public void postponeReminders(List<UUID> noteIds, long shiftMillis) {
+        runBulk(() -> reminderManager.postponeTimeReminders(noteIds, shiftMillis));
+    }
+
+    /** All tags, for picking one to apply to the selection. */
+    public void loadTags(DatabaseExecutor.Callback<List<Tag>> callback) {
+        DatabaseExecutor.submit(tagManager::getAllTags, callback);
+    }
+
+    private void runBulk(Runnable action) {
+        DatabaseExecutor.execute(action, () -> {
+            if (listener != null) {
+                listener.onBulkActionDone();
+            }
+        });
+    }
+
     /** User tapped an existing note in the list. */
     public void onNoteSelected(UUID noteId) {
         if (listener != null && noteId != null) {
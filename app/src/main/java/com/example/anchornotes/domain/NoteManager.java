@@ -1,12 +1,20 @@
 package com.example.anchornotes.domain;
 
 import android.content.Context;
+import android.os.CancellationSignal;
 import android.util.Pair;
 
+import androidx.annotation.Nullable;
+
+import com.example.anchornotes.data.DatabaseChanges;
 import com.example.anchornotes.data.Note;
+import com.example.anchornotes.data.NoteSummary;
 import com.example.anchornotes.data.NoteRepository;
+import com.example.anchornotes.data.ObservableQuery;
 import com.example.anchornotes.data.Reminder;
+import com.example.anchornotes.data.TagRepository;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
@@ -23,18 +31,82 @@ import java.util.UUID;
 public class NoteManager {
 
     private final NoteRepository noteRepository;
+    private final TagRepository tagRepository;
     private final ReminderManager reminderManager;
+    private final TagIndex tagIndex = TagIndex.getInstance();
 
     public NoteManager(Context context) {
         Context appContext = context.getApplicationContext();
         this.noteRepository = new NoteRepository(appContext);
+        this.tagRepository = new TagRepository(appContext);
         this.reminderManager = new ReminderManager(appContext);
     }
 
     // ---------- Queries ----------
 
-    public List<Note> getAllNotes() {
-        return noteRepository.getAllNotes();
+    /** List rows matching a NoteQuery, filtered and sorted by SQLite. */
+    public List<NoteSummary> queryNotes(NoteQuery query) {
+        if (query == null) query = NoteQuery.all();
+        List<NoteSummary> items = noteRepository.queryNoteSummaries(query.toSqlQuery());
+        noteRepository.fillSnippets(items, query.matchExpression(), null);
+        return withTagNames(items);
+    }
+
+    /**
+     * queryNotes that gives up (OperationCanceledException) as soon as the
+     * signal is cancelled, e.g. because the search text changed again.
+     */
+    public List<NoteSummary> queryNotes(NoteQuery query, CancellationSignal signal) {
+        if (query == null) query = NoteQuery.all();
+        List<NoteSummary> items = noteRepository.queryNoteSummaries(query.toSqlQuery(), signal);
+        noteRepository.fillSnippets(items, query.matchExpression(), signal);
+        signal.throwIfCanceled();
+        return withTagNames(items);
+    }
+
+    /**
+     * Ids of every note matching a ranked query (NoteQuery.isRanked()),
+     * best match first: BM25 for word searches, trigram similarity for
+     * fuzzy ones. Cancellable when a signal is given.
+     */
+    public List<UUID> rankNotes(NoteQuery query, @Nullable CancellationSignal signal) {
+        if (query.isFuzzy()) {
+            return noteRepository.queryNoteIds(query.toFuzzyQuery(), signal);
+        }
+        return SearchRanker.rank(noteRepository.queryMatches(query.toMatchQuery(), signal));
+    }
+
+    /**
+     * List rows for the given notes in that order, with snippets for the
+     * query's search text: one page of a ranked search.
+     */
+    public List<NoteSummary> getNoteSummaries(List<UUID> ids, NoteQuery query,
+                                              @Nullable CancellationSignal signal) {
+        List<NoteSummary> items = noteRepository.getNoteSummariesByIds(ids, signal);
+        // Fuzzy hits needn't contain the typed words, so they show the preview
+        if (!query.isFuzzy()) {
+            noteRepository.fillSnippets(items, query.matchExpression(), signal);
+        }
+        if (signal != null) signal.throwIfCanceled();
+        return withTagNames(items);
+    }
+
+    /** Tag names come from the in-memory TagIndex, not from the list query. */
+    private List<NoteSummary> withTagNames(List<NoteSummary> items) {
+        tagIndex.fillTagNames(items, tagRepository);
+        return items;
+    }
+
+    /** Number of notes matching a NoteQuery's criteria (paging ignored). */
+    public int countNotes(NoteQuery query) {
+        if (query == null) query = NoteQuery.all();
+        return noteRepository.countNotes(query.toCountQuery());
+    }
+
+    /** countNotes that gives up once the signal is cancelled. */
+    public int countNotes(NoteQuery query, CancellationSignal signal) {
+        if (query == null) query = NoteQuery.all();
+        return noteRepository.countNotes(query.toCountQuery(), signal);
     }
 
     public Note getNote(UUID id) {
@@ -42,6 +114,16 @@ public class NoteManager {
         return noteRepository.getNote(id);
     }
 
+    /**
+     * Like getNote(), but with the full content of a long note loaded from
+     * out-of-row storage. Only the detail screen needs this; getNote()
+     * returns just the head of such a body.
+     */
+    public Note getNoteWithBody(UUID id) {
+        if (id == null) return null;
+        return noteRepository.getNoteWithBody(id);
+    }
+
     /**
      * Return (Note, Reminder?) pair as in the design doc.
      */
@@ -50,7 +132,7 @@ public class NoteManager {
             return Pair.create(null, null);
         }
 
-        Note note = noteRepository.getNote(noteId);
+        Note note = noteRepository.getNoteWithBody(noteId);
         Reminder reminder = null;
         if (note != null) {
             reminder = noteRepository.getReminderForNote(noteId);
@@ -59,6 +141,15 @@ public class NoteManager {
         return Pair.create(note, reminder);
     }
 
+    /**
+     * getNoteWithReminder as an ObservableQuery: re-run only after the
+     * note, its body or its reminder was written.
+     */
+    public ObservableQuery<Pair<Note, Reminder>> observeNoteWithReminder(UUID noteId) {
+        return noteRepository.observe(() -> getNoteWithReminder(noteId),
+                DatabaseChanges.NOTES, DatabaseChanges.NOTE_BODIES, DatabaseChanges.REMINDERS);
+    }
+
     // ---------- Mutations ----------
 
     public Note createNote(String title, String content) {
@@ -85,8 +176,47 @@ public class NoteManager {
             // First remove any reminders tied to this note
             reminderManager.removeRemindersForNote(id);
 
-            // Then delete the note itself
-            noteRepository.deleteNote(existing);
+            // Then delete the note itself; TagIndex hears of it once committed
+            tagIndex.beginWrite();
+            try {
+                noteRepository.deleteNote(existing);
+                tagIndex.onNotesDeleted(Collections.singletonList(id));
+            } finally {
+                tagIndex.endWrite();
+            }
         }
     }
+
+    /**
+     * Delete many notes at once: their alarms/geofences are cancelled in one
+     * batch, then notes, reminders, tag links and search entries go in one
+     * transaction. TagIndex is told once that transaction has committed.
+     */
+    public void deleteNotes(List<UUID> ids) {
+        if (ids == null || ids.isEmpty()) return;
+        reminderManager.cancelOsRemindersForNotes(ids);
+        tagIndex.beginWrite();
+        try {
+            noteRepository.deleteNotes(ids);
+            tagIndex.onNotesDeleted(ids);
+        } finally {
+            tagIndex.endWrite();
+        }
+    }
+
+    /**
+     * Attach (or with null, null remove) a location. Only those columns and
+     * updatedAt are written, via the coalescing write queue; onApplied runs
+     * on the main thread.
+     */
+    public void setLocation(UUID id, Double lat, Double lng, Runnable onApplied) {
+        if (id == null) return;
+        noteRepository.setLocationAsync(id, lat, lng, onApplied);
+    }
+
+    /** Pin or unpin many notes with one UPDATE. */
+    public void setPinned(List<UUID> ids, boolean pinned) {
+        if (ids == null || ids.isEmpty()) return;
+        noteRepository.setPinned(ids, pinned);
+    }
 }
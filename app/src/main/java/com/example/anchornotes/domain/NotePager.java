@@ -0,0 +1,118 @@
+package com.example.anchornotes.domain;
+
+import android.os.CancellationSignal;
+
+import androidx.annotation.Nullable;
+
+import com.example.anchornotes.data.NoteSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Pages through the results of a NoteQuery with keyset seeks, so the list
+ * only ever holds the rows the user has actually scrolled to.
+ *
+ * A ranked search (NoteQuery.isRanked()) can't seek by a sort key: its
+ * first page scores every hit once, later pages are slices of that order.
+ *
+ * Pages are loaded on the database thread (one at a time, see
+ * NoteListController); hasMore() may be read from the main thread.
+ */
+public class NotePager {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private final NoteManager noteManager;
+    private final NoteQuery query;
+    private final int pageSize;
+
+    private NoteSummary lastItem;
+    // Ranked queries only: every hit's id, best first, and how many were paged
+    private List<UUID> rankedIds;
+    private int rankedOffset;
+    private volatile boolean hasMore = true;
+
+    public NotePager(NoteManager noteManager, NoteQuery query, int pageSize) {
+        this.noteManager = noteManager;
+        this.query = query != null ? query : NoteQuery.all();
+        this.pageSize = pageSize > 0 ? pageSize : DEFAULT_PAGE_SIZE;
+    }
+
+    /** Load the next page (the first one on the first call). */
+    public List<NoteSummary> loadNextPage() {
+        return loadNextPage(pageSize);
+    }
+
+    /**
+     * Load up to limit rows as the next page, e.g. to refresh everything the
+     * user had already scrolled through in one query.
+     */
+    public List<NoteSummary> loadNextPage(int limit) {
+        return loadNextPage(limit, null);
+    }
+
+    /**
+     * Like loadNextPage(limit), but abandoned with OperationCanceledException
+     * once the signal (if any) is cancelled. A cancelled pager should be
+     * thrown away, not asked for more pages.
+     */
+    public List<NoteSummary> loadNextPage(int limit, @Nullable CancellationSignal signal) {
+        if (!hasMore) {
+            return new ArrayList<>();
+        }
+        if (query.isRanked()) {
+            return loadRankedPage(limit, signal);
+        }
+
+        NoteQuery pageQuery = query.copy().after(lastItem).limit(limit);
+        List<NoteSummary> page = signal != null
+                ? noteManager.queryNotes(pageQuery, signal)
+                : noteManager.queryNotes(pageQuery);
+        if (page == null) {
+            page = new ArrayList<>();
+        }
+
+        // A short page means we reached the end
+        hasMore = page.size() == limit;
+        if (!page.isEmpty()) {
+            lastItem = page.get(page.size() - 1);
+        }
+        return page;
+    }
+
+    private List<NoteSummary> loadRankedPage(int limit, @Nullable CancellationSignal signal) {
+        if (rankedIds == null) {
+            rankedIds = noteManager.rankNotes(query, signal);
+        }
+
+        int end = Math.min(rankedIds.size(), rankedOffset + limit);
+        List<UUID> pageIds = rankedIds.subList(rankedOffset, end);
+        List<NoteSummary> page = pageIds.isEmpty()
+                ? new ArrayList<>()
+                : noteManager.getNoteSummaries(pageIds, query, signal);
+
+        rankedOffset = end;
+        hasMore = end < rankedIds.size();
+        return page;
+    }
+
+    public NoteQuery getQuery() {
+        return query;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /** Total rows matching the query, for the "Matching notes" label. */
+    public int countAll() {
+        return noteManager.countNotes(query);
+    }
+
+    public int countAll(@Nullable CancellationSignal signal) {
+        if (rankedIds != null) return rankedIds.size();
+        return signal != null ? noteManager.countNotes(query, signal) : countAll();
+    }
+}
@@ -0,0 +1,424 @@
+package com.example.anchornotes.domain;
+
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import com.example.anchornotes.data.Converters;
+import com.example.anchornotes.data.NoteDao;
+import com.example.anchornotes.data.NoteFts;
+import com.example.anchornotes.data.NoteSummary;
+import com.example.anchornotes.data.ReminderType;
+import com.example.anchornotes.data.Trigrams;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Describes what the home screen list should show: filter, sort order,
+ * tag and search text. Compiles to a single parameterized SQL statement
+ * so filtering and sorting happen in SQLite instead of in Java.
+ *
+ * Pinned notes always come first, and every sort ends with the note id so
+ * the order is total. That lets a page be fetched with a keyset seek
+ * ("rows after the last one shown") instead of OFFSET.
+ *
+ * RELEVANCE with search text can't be expressed as an ORDER BY (FTS4 has
+ * no bm25()), so such a query is ranked in two steps instead: toMatchQuery()
+ * returns every hit with its matchinfo for SearchRanker, and NotePager
+ * loads the rows of each page by id. Without search text RELEVANCE sorts
+ * like NEWEST_FIRST.
+ *
+ * A fuzzy query matches the search text by shared trigrams instead of
+ * words, so typos still find notes; its hits are always ranked by
+ * similarity (toFuzzyQuery()) and paged like RELEVANCE.
+ *
+ * Usage:
+ *   NoteQuery.all().filter(FilterMode.TODAY).sort(SortMode.TITLE_ASC).text("meet")
+ */
+public class NoteQuery {
+
+    /** Most candidates a fuzzy query returns; weaker ones are dropped. */
+    public static final int FUZZY_MAX_RESULTS = 200;
+
+    public enum SortMode {
+        NEWEST_FIRST,
+        OLDEST_FIRST,
+        TITLE_ASC,
+        TITLE_DESC,
+        REMINDERS_FIRST,
+        RELEVANCE
+    }
+
+    public enum FilterMode {
+        ALL,
+        HAS_REMINDER,
+        TIME_ONLY,
+        LOCATION_ONLY,
+        NO_REMINDER,
+        TODAY
+    }
+
+    private FilterMode filterMode = FilterMode.ALL;
+    private SortMode sortMode = SortMode.NEWEST_FIRST;
+    private UUID tagId;
+    private String text;
+    private boolean fuzzy;
+    private int limit;
+    private NoteSummary after;
+
+    public static NoteQuery all() {
+        return new NoteQuery();
+    }
+
+    public NoteQuery filter(FilterMode filterMode) {
+        this.filterMode = filterMode != null ? filterMode : FilterMode.ALL;
+        return this;
+    }
+
+    public NoteQuery sort(SortMode sortMode) {
+        this.sortMode = sortMode != null ? sortMode : SortMode.NEWEST_FIRST;
+        return this;
+    }
+
+    /** Only notes carrying this tag (null = any). */
+    public NoteQuery tag(UUID tagId) {
+        this.tagId = tagId;
+        return this;
+    }
+
+    /** Full-text search over title, content and tag names (blank = no search). */
+    public NoteQuery text(String text) {
+        this.text = text;
+        return this;
+    }
+
+    /** Match the search text by similarity (typo-tolerant) instead of by words. */
+    public NoteQuery fuzzy(boolean fuzzy) {
+        this.fuzzy = fuzzy;
+        return this;
+    }
+
+    /** At most this many rows (0 = no limit). */
+    public NoteQuery limit(int limit) {
+        this.limit = Math.max(0, limit);
+        return this;
+    }
+
+    /** Only rows that sort after this one (keyset seek for the next page). */
+    public NoteQuery after(NoteSummary lastItem) {
+        this.after = lastItem;
+        return this;
+    }
+
+    /** Same criteria, no paging: the starting point for the next page. */
+    public NoteQuery copy() {
+        return NoteQuery.all()
+                .filter(filterMode)
+                .sort(sortMode)
+                .tag(tagId)
+                .text(text)
+                .fuzzy(fuzzy);
+    }
+
+    public FilterMode getFilterMode() { return filterMode; }
+    public SortMode getSortMode() { return sortMode; }
+    public UUID getTagId() { return tagId; }
+    public String getText() { return text; }
+    public boolean isFuzzy() { return fuzzy; }
+
+    /** FTS MATCH expression for the search text, null if there is none. */
+    public String matchExpression() {
+        return text != null ? NoteFts.buildMatchQuery(text) : null;
+    }
+
+    /**
+     * True if results are ranked (BM25 or trigram similarity) rather than
+     * sorted in SQL, and must be paged through a ranked id list.
+     */
+    public boolean isRanked() {
+        if (fuzzy) {
+            return text != null && Trigrams.ofQuery(text).length > 0;
+        }
+        return sortMode == SortMode.RELEVANCE && matchExpression() != null;
+    }
+
+    // ------------------------------------------------------------------------
+    // SQL compilation
+    // ------------------------------------------------------------------------
+
+    /** Build the SELECT for NoteDao.queryNoteSummaries. */
+    public SupportSQLiteQuery toSqlQuery() {
+        List<String> where = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+
+        appendCriteria(where, args);
+
+        List<SortKey> keys = sortKeys();
+        if (after != null) {
+            appendSeek(keys, where, args);
+        }
+
+        StringBuilder sql = new StringBuilder(NoteDao.SUMMARY_SELECT);
+        appendWhere(sql, where);
+        sql.append(" ORDER BY ");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) sql.append(", ");
+            SortKey key = keys.get(i);
+            sql.append(key.expr).append(key.descending ? " DESC" : " ASC");
+        }
+        if (limit > 0) {
+            sql.append(" LIMIT ").append(limit);
+        }
+
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    /**
+     * Every hit of a ranked query (see isRanked()) as (id, pinned,
+     * matchinfo) rows, with the same filter and tag criteria. FTS drives
+     * the join, so the MATCH runs once.
+     */
+    public SupportSQLiteQuery toMatchQuery() {
+        List<String> where = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+
+        where.add("notes_fts MATCH ?");
+        args.add(matchExpression());
+        appendFilter(where, args);
+        appendTag(where, args);
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT n.id, n.pinned, " + NoteFts.MATCH_INFO + " AS matchInfo " +
+                "FROM notes_fts INNER JOIN notes n ON n.rowid = notes_fts.rowid " +
+                "LEFT JOIN reminders r ON r.noteId = n.id ");
+        appendWhere(sql, where);
+
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    /**
+     * Ids of the notes sharing enough trigrams with the search text (see
+     * Trigrams.MIN_SIMILARITY) in title, content or tag names, most similar
+     * first (pinned notes still lead), at most FUZZY_MAX_RESULTS of them.
+     * Every gram is an index seek on note_trigrams / tag_trigrams.
+     */
+    public SupportSQLiteQuery toFuzzyQuery() {
+        long[] grams = Trigrams.ofQuery(text != null ? text : "");
+        String gramList = placeholders(grams.length);
+
+        List<Object> args = new ArrayList<>();
+        for (long gram : grams) args.add(gram);
+        for (long gram : grams) args.add(gram);
+        args.add(Trigrams.minHits(grams.length));
+
+        List<String> where = new ArrayList<>();
+        appendFilter(where, args);
+        appendTag(where, args);
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT n.id FROM (" +
+                "SELECT note, COUNT(DISTINCT gram) AS hits FROM (" +
+                "SELECT gram, noteRowId AS note FROM note_trigrams " +
+                "WHERE gram IN (" + gramList + ") " +
+                "UNION ALL " +
+                "SELECT tt.gram, tn.rowid FROM tag_trigrams tt " +
+                "INNER JOIN note_tags nt ON nt.tagId = tt.tagId " +
+                "INNER JOIN notes tn ON tn.id = nt.noteId " +
+                "WHERE tt.gram IN (" + gramList + ")" +
+                ") GROUP BY note HAVING hits >= ?" +
+                ") h INNER JOIN notes n ON n.rowid = h.note " +
+                "LEFT JOIN reminders r ON r.noteId = n.id ");
+        appendWhere(sql, where);
+        sql.append(" ORDER BY n.pinned DESC, h.hits DESC, n.updatedAt DESC, n.id DESC")
+                .append(" LIMIT ").append(FUZZY_MAX_RESULTS);
+
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    /** Build a COUNT(*) over the same criteria (ignores paging). */
+    public SupportSQLiteQuery toCountQuery() {
+        List<String> where = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+
+        appendCriteria(where, args);
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT COUNT(*) FROM notes n " +
+                "LEFT JOIN reminders r ON r.noteId = n.id ");
+        appendWhere(sql, where);
+
+        return new SimpleSQLiteQuery(sql.toString(), args.toArray());
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    private static void appendWhere(StringBuilder sql, List<String> where) {
+        for (int i = 0; i < where.size(); i++) {
+            sql.append(i == 0 ? "WHERE " : " AND ").append(where.get(i));
+        }
+    }
+
+    private void appendCriteria(List<String> where, List<Object> args) {
+        appendFilter(where, args);
+        appendTag(where, args);
+
+        if (text != null && !text.trim().isEmpty()) {
+            String match = NoteFts.buildMatchQuery(text);
+            if (match == null) {
+                // Nothing searchable typed (e.g. only punctuation): no hits
+                where.add("0");
+            } else {
+                where.add("n.rowid IN (SELECT rowid FROM notes_fts WHERE notes_fts MATCH ?)");
+                args.add(match);
+            }
+        }
+    }
+
+    private void appendTag(List<String> where, List<Object> args) {
+        if (tagId != null) {
+            where.add("n.id IN (SELECT noteId FROM note_tags WHERE tagId = ?)");
+            args.add(Converters.fromUUIDToBytes(tagId));
+        }
+    }
+
+    private void appendFilter(List<String> where, List<Object> args) {
+        switch (filterMode) {
+            case HAS_REMINDER:
+                where.add("r.isActive = 1");
+                break;
+
+            case TIME_ONLY:
+                where.add("r.isActive = 1 AND r.type = ?");
+                args.add(ReminderType.TIME.name());
+                break;
+
+            case LOCATION_ONLY:
+                where.add("r.isActive = 1 AND r.type = ?");
+                args.add(ReminderType.LOCATION.name());
+                break;
+
+            case NO_REMINDER:
+                where.add("(r.id IS NULL OR r.isActive = 0)");
+                break;
+
+            case TODAY: {
+                // Range on updatedAt so SQLite can use the column index
+                Calendar start = Calendar.getInstance();
+                start.set(Calendar.HOUR_OF_DAY, 0);
+                start.set(Calendar.MINUTE, 0);
+                start.set(Calendar.SECOND, 0);
+                start.set(Calendar.MILLISECOND, 0);
+                Calendar end = (Calendar) start.clone();
+                end.add(Calendar.DAY_OF_YEAR, 1);
+
+                where.add("n.updatedAt >= ? AND n.updatedAt < ?");
+                args.add(start.getTimeInMillis());
+                args.add(end.getTimeInMillis());
+                break;
+            }
+
+            case ALL:
+            default:
+                break;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Sort keys + keyset seek
+    // ------------------------------------------------------------------------
+
+    private interface KeyValue {
+        Object of(NoteSummary item);
+    }
+
+    private static final class SortKey {
+        final String expr;
+        final boolean descending;
+        final KeyValue value;
+
+        SortKey(String expr, boolean descending, KeyValue value) {
+            this.expr = expr;
+            this.descending = descending;
+            this.value = value;
+        }
+    }
+
+    private List<SortKey> sortKeys() {
+        List<SortKey> keys = new ArrayList<>();
+
+        keys.add(new SortKey("n.pinned", true,
+                item -> item.isPinned() ? 1 : 0));
+
+        SortKey updatedDesc = new SortKey("n.updatedAt", true, NoteQuery::updatedAtOf);
+
+        switch (sortMode) {
+            case OLDEST_FIRST:
+                keys.add(new SortKey("n.updatedAt", false, NoteQuery::updatedAtOf));
+                break;
+            case TITLE_ASC:
+                // Locale collation keys, compared as BLOBs along index_notes_title_asc
+                keys.add(new SortKey("n.titleSortKey", false, NoteQuery::titleKeyOf));
+                break;
+            case TITLE_DESC:
+                keys.add(new SortKey("n.titleSortKey", true, NoteQuery::titleKeyOf));
+                break;
+            case REMINDERS_FIRST:
+                keys.add(new SortKey("COALESCE(r.isActive, 0)", true,
+                        item -> item.isReminderActive() ? 1 : 0));
+                keys.add(updatedDesc);
+                break;
+            case RELEVANCE:
+                // Only reached without search text (see isRanked())
+            case NEWEST_FIRST:
+            default:
+                keys.add(updatedDesc);
+                break;
+        }
+
+        // Tie-breaker so the order is total and the seek never skips rows
+        keys.add(new SortKey("n.id", true,
+                item -> Converters.fromUUIDToBytes(item.getId())));
+        return keys;
+    }
+
+    /**
+     * Rows strictly after the last item in sort order:
+     *   k1 > v1 OR (k1 = v1 AND k2 > v2) OR ...   (with < for DESC keys)
+     * Expanded by hand because row-value comparisons need a newer SQLite
+     * than minSdk 24 ships.
+     */
+    private void appendSeek(List<SortKey> keys, List<String> where, List<Object> args) {
+        StringBuilder seek = new StringBuilder("(");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) seek.append(" OR ");
+            seek.append('(');
+            for (int j = 0; j < i; j++) {
+                seek.append(keys.get(j).expr).append(" = ? AND ");
+                args.add(keys.get(j).value.of(after));
+            }
+            SortKey key = keys.get(i);
+            seek.append(key.expr).append(key.descending ? " < ?" : " > ?");
+            args.add(key.value.of(after));
+            seek.append(')');
+        }
+        seek.append(')');
+        where.add(seek.toString());
+    }
+
+    private static Object updatedAtOf(NoteSummary item) {
+        return item.getUpdatedAt();
+    }
+
+    private static Object titleKeyOf(NoteSummary item) {
+        // Keys are never null once written (a null title gets the key of "")
+        return item.getTitleSortKey() != null ? item.getTitleSortKey() : new byte[0];
+    }
+}
@@ -9,7 +9,11 @@ import com.example.anchornotes.data.Reminder;
 import com.example.anchornotes.data.ReminderType;
 import com.example.anchornotes.services.TimeReminderService;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -70,16 +74,15 @@ public class ReminderManager {
             return null;
         }
 
-        // Clear any existing reminder for this note first.
-        removeRemindersForNote(noteId);
+        Reminder existing = noteRepository.getReminderForNote(noteId);
 
         Reminder reminder = new Reminder(noteId, ReminderType.TIME);
         reminder.setTriggerTime(triggerTime);
-        noteRepository.insertReminder(reminder);
 
-        // Attach reminder to note so we can look it up quickly later.
-        note.setReminderId(reminder.getId());
-        noteRepository.updateNote(note);
+        // Swap out any existing reminder and link the new one to the note,
+        // all in one transaction.
+        noteRepository.replaceReminderForNote(noteId, reminder);
+        cancelOsReminder(existing);
 
         timeReminderService.scheduleTimeReminder(
                 noteId,
@@ -106,18 +109,17 @@ public class ReminderManager {
             return null;
         }
 
-        // Clear any existing reminder for this note first.
-        removeRemindersForNote(noteId);
+        Reminder existing = noteRepository.getReminderForNote(noteId);
 
         Reminder reminder = new Reminder(noteId, ReminderType.LOCATION);
         reminder.setLocationLat(lat);
         reminder.setLocationLng(lng);
         reminder.setRadiusMeters(radiusMeters);
-        noteRepository.insertReminder(reminder);
 
-        // Attach reminder to note so we can look it up quickly later.
-        note.setReminderId(reminder.getId());
-        noteRepository.updateNote(note);
+        // Swap out any existing reminder and link the new one to the note,
+        // all in one transaction.
+        noteRepository.replaceReminderForNote(noteId, reminder);
+        cancelOsReminder(existing);
 
         // Register geofence with Play Services.
         locationReminderService.registerGeofenceForReminder(reminder);
@@ -146,20 +148,10 @@ public class ReminderManager {
         }
 
         // Cancel underlying OS integration.
-        if (existing.getType() == ReminderType.TIME) {
-            timeReminderService.cancelTimeReminder(existing);
-        } else if (existing.getType() == ReminderType.LOCATION) {
-            locationReminderService.removeGeofenceForReminder(existing);
-        }
+        cancelOsReminder(existing);
 
-        noteRepository.deleteReminder(existing);
-
-        // Clear reminderId on the note, if it still exists.
-        Note note = noteRepository.getNote(noteId);
-        if (note != null) {
-            note.setReminderId(null);
-            noteRepository.updateNote(note);
-        }
+        // Delete the Reminder row(s) and clear reminderId on the note together.
+        noteRepository.clearReminderForNote(noteId);
     }
 
     /**
@@ -177,11 +169,7 @@ public class ReminderManager {
         }
 
         // Cancel the OS-level alarm/geofence
-        if (existing.getType() == ReminderType.TIME) {
-            timeReminderService.cancelTimeReminder(existing);
-        } else if (existing.getType() == ReminderType.LOCATION) {
-            locationReminderService.removeGeofenceForReminder(existing);
-        }
+        cancelOsReminder(existing);
 
         if (existing.isActive()) {
             existing.markRetired();
@@ -189,6 +177,94 @@ public class ReminderManager {
         }
     }
 
+    // ------------------------------------------------------------------------
+    // Bulk operations (multi-select)
+    // ------------------------------------------------------------------------
+
+    /**
+     * Remove the reminders of many notes: one batched OS cancellation, then
+     * one transaction that deletes the rows and clears the notes' reminderId.
+     */
+    public void removeRemindersForNotes(List<UUID> noteIds) {
+        if (noteIds == null || noteIds.isEmpty()) {
+            return;
+        }
+        cancelOsReminders(noteRepository.getRemindersForNotes(noteIds));
+        noteRepository.clearRemindersForNotes(noteIds);
+    }
+
+    /**
+     * Cancel the alarms/geofences of many notes without touching the
+     * database, for callers that delete the rows themselves.
+     */
+    public void cancelOsRemindersForNotes(List<UUID> noteIds) {
+        if (noteIds == null || noteIds.isEmpty()) {
+            return;
+        }
+        cancelOsReminders(noteRepository.getRemindersForNotes(noteIds));
+    }
+
+    /**
+     * Move the active time reminders of many notes by shiftMillis (e.g. one
+     * day later) in one UPDATE, then re-arm their alarms. Location reminders
+     * are left as they are.
+     */
+    public void postponeTimeReminders(List<UUID> noteIds, long shiftMillis) {
+        if (noteIds == null || noteIds.isEmpty()) {
+            return;
+        }
+
+        List<Reminder> moved = noteRepository.shiftTimeReminders(noteIds, shiftMillis);
+        if (moved.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, String> titles = new HashMap<>();
+        List<UUID> movedNoteIds = new ArrayList<>(moved.size());
+        for (Reminder reminder : moved) {
+            movedNoteIds.add(reminder.getNoteId());
+        }
+        for (Note note : noteRepository.getNotesByIds(movedNoteIds)) {
+            titles.put(note.getId(), note.getTitle());
+        }
+
+        // Same request code per reminder, so this replaces the old alarm
+        for (Reminder reminder : moved) {
+            timeReminderService.scheduleTimeReminder(
+                    reminder.getNoteId(),
+                    titles.get(reminder.getNoteId()),
+                    reminder
+            );
+        }
+    }
+
+    /** Cancel alarms and geofences for many reminders, geofences in one call. */
+    private void cancelOsReminders(List<Reminder> reminders) {
+        List<Reminder> time = new ArrayList<>();
+        List<Reminder> location = new ArrayList<>();
+        for (Reminder reminder : reminders) {
+            if (reminder.getType() == ReminderType.TIME) {
+                time.add(reminder);
+            } else if (reminder.getType() == ReminderType.LOCATION) {
+                location.add(reminder);
+            }
+        }
+        timeReminderService.cancelTimeReminders(time);
+        locationReminderService.removeGeofencesForReminders(location);
+    }
+
+    /** Cancel the alarm or geofence behind a reminder (no-op for null). */
+    private void cancelOsReminder(Reminder reminder) {
+        if (reminder == null) {
+            return;
+        }
+        if (reminder.getType() == ReminderType.TIME) {
+            timeReminderService.cancelTimeReminder(reminder);
+        } else if (reminder.getType() == ReminderType.LOCATION) {
+            locationReminderService.removeGeofenceForReminder(reminder);
+        }
+    }
+
     // Convenience wrappers that match the design document naming
 
     /**
@@ -0,0 +1,106 @@
+package com.example.anchornotes.domain;
+
+import com.example.anchornotes.data.SearchMatch;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Okapi BM25 relevance for search hits.
+ *
+ * FTS4 has no built-in ranking function, so the score is computed here from
+ * the matchinfo blob every hit carries (NoteFts.MATCH_INFO): per search
+ * term and column, how often it occurs in the note, how many notes contain
+ * it, and how long the column is relative to the average. A title hit
+ * counts more than a body hit; tags sit in between.
+ */
+public final class SearchRanker {
+
+    // Standard BM25 parameters: term-frequency saturation, length normalisation
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Per notes_fts column: title, content, tags, CJK bigrams of title + content
+    private static final double[] COLUMN_WEIGHTS = { 2.0, 1.0, 1.5, 1.0 };
+
+    // Terms in more than half the notes get a negative idf; keep them
+    // worth a little instead, so matching more terms never lowers a score
+    private static final double MIN_IDF = 1e-6;
+
+    private SearchRanker() { }
+
+    /**
+     * Note ids ordered for display: pinned notes first (as in every other
+     * sort), then by descending score, ties broken by id for a stable order.
+     */
+    public static List<UUID> rank(List<SearchMatch> matches) {
+        if (matches == null || matches.isEmpty()) return new ArrayList<>();
+
+        List<Scored> scored = new ArrayList<>(matches.size());
+        for (SearchMatch match : matches) {
+            scored.add(new Scored(match, score(match.getMatchInfo())));
+        }
+        Collections.sort(scored, (a, b) -> {
+            if (a.match.isPinned() != b.match.isPinned()) {
+                return a.match.isPinned() ? -1 : 1;
+            }
+            int byScore = Double.compare(b.score, a.score);
+            return byScore != 0 ? byScore : a.match.getNoteId().compareTo(b.match.getNoteId());
+        });
+
+        List<UUID> ids = new ArrayList<>(scored.size());
+        for (Scored s : scored) {
+            ids.add(s.match.getNoteId());
+        }
+        return ids;
+    }
+
+    /** BM25 score of one hit from its 'pcnalx' matchinfo; 0 if unreadable. */
+    static double score(byte[] matchInfo) {
+        if (matchInfo == null || matchInfo.length < 12) return 0;
+
+        // SQLite writes matchinfo as unsigned 32-bit ints in native byte order
+        IntBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = info.get(0);
+        int columns = info.get(1);
+        double rows = info.get(2);
+        int avgLengths = 3;
+        int lengths = avgLengths + columns;
+        int hits = lengths + columns;
+        if (info.limit() < hits + 3 * phrases * columns) return 0;
+
+        double score = 0;
+        for (int p = 0; p < phrases; p++) {
+            for (int col = 0; col < columns; col++) {
+                int x = hits + 3 * (p * columns + col);
+                int tf = info.get(x);
+                if (tf <= 0) continue;
+
+                int df = info.get(x + 2);
+                double idf = Math.max(MIN_IDF, Math.log((rows - df + 0.5) / (df + 0.5)));
+                double avgLength = info.get(avgLengths + col);
+                double relLength = avgLength > 0 ? info.get(lengths + col) / avgLength : 1;
+                double weight = col < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[col] : 1;
+
+                score += weight * idf * tf * (K1 + 1)
+                        / (tf + K1 * (1 - B + B * relLength));
+            }
+        }
+        return score;
+    }
+
+    private static final class Scored {
+        final SearchMatch match;
+        final double score;
+
+        Scored(SearchMatch match, double score) {
+            this.match = match;
+            this.score = score;
+        }
+    }
+}
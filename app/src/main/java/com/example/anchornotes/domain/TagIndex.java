@@ -0,0 +1,269 @@
+package com.example.anchornotes.domain;
+
+import android.text.TextUtils;
+import android.util.Pair;
+
+import com.example.anchornotes.data.NoteSummary;
+import com.example.anchornotes.data.NoteTagName;
+import com.example.anchornotes.data.Tag;
+import com.example.anchornotes.data.TagRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * In-memory note → tags map, so building list rows needs one hash lookup
+ * per note instead of a tag query (or SQL subquery) per note.
+ *
+ * Loaded with two queries (all tags, all mappings) in one transaction the
+ * first time it is needed, then kept current by TagManager and
+ * NoteManager. They report each tag and note change once its write has
+ * committed, so a rolled-back write never reaches the index, and bracket
+ * the write with beginWrite()/endWrite(): fillTagNames waits for the
+ * report, so a list re-queried as soon as the write commits already sees
+ * it. Reports that arrive while the index is loading are replayed on top
+ * of the loaded snapshot; before that they are dropped, since the load
+ * reads the committed change anyway.
+ *
+ * One instance per process; all methods are thread-safe. ensureLoaded()
+ * queries the database, so call it (or fillTagNames) off the main thread.
+ */
+public final class TagIndex {
+
+    private static final TagIndex INSTANCE = new TagIndex();
+
+    // Held for a whole load, so only one runs; taken before this, never after
+    private final Object loadLock = new Object();
+
+    // Guarded by this
+    private boolean loaded;
+    // Reports made during a load, applied once its snapshot is in; null otherwise
+    private List<Runnable> replay;
+    private int writesInFlight;
+    private final Map<UUID, String> tagNames = new HashMap<>();
+    private final Map<UUID, Set<UUID>> tagIdsByNote = new HashMap<>();
+    // What NoteSummary.getTagNames() shows, kept precomputed per note
+    private final Map<UUID, String> labelsByNote = new HashMap<>();
+
+    private TagIndex() { }
+
+    public static TagIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /** Load the whole mapping if that hasn't happened yet. */
+    public void ensureLoaded(TagRepository tagRepository) {
+        synchronized (loadLock) {
+            synchronized (this) {
+                if (loaded) return;
+                replay = new ArrayList<>();
+            }
+
+            Pair<List<Tag>, List<NoteTagName>> snapshot;
+            try {
+                snapshot = tagRepository.getTagMap();
+            } catch (RuntimeException ex) {
+                synchronized (this) {
+                    replay = null;
+                }
+                throw ex;
+            }
+
+            synchronized (this) {
+                clear();
+                for (Tag tag : snapshot.first) {
+                    tagNames.put(tag.getId(), tag.getName());
+                }
+                for (NoteTagName row : snapshot.second) {
+                    tagIdsFor(row.getNoteId()).add(row.getTagId());
+                }
+                for (UUID noteId : tagIdsByNote.keySet()) {
+                    updateLabel(noteId);
+                }
+                // In report order; each one is idempotent, so replaying a
+                // change the snapshot already holds is harmless
+                for (Runnable change : replay) {
+                    change.run();
+                }
+                replay = null;
+                loaded = true;
+            }
+        }
+    }
+
+    /**
+     * Set each row's tag names from the index (loading it first if needed),
+     * after any tag write in progress has been reported.
+     */
+    public void fillTagNames(List<NoteSummary> items, TagRepository tagRepository) {
+        if (items == null || items.isEmpty()) return;
+        ensureLoaded(tagRepository);
+        synchronized (this) {
+            awaitWrites();
+            for (NoteSummary item : items) {
+                item.setTagNames(labelsByNote.get(item.getId()));
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Writes and their change reports (made after the write has committed)
+    // ------------------------------------------------------------------------
+
+    /** A write that changes tags or removes notes is starting; report it, then endWrite(). */
+    public synchronized void beginWrite() {
+        writesInFlight++;
+    }
+
+    /** The write begun with beginWrite() is reported, or failed; always call it (finally). */
+    public synchronized void endWrite() {
+        writesInFlight--;
+        notifyAll();
+    }
+
+    /** A tag was inserted, or an existing one re-saved (possibly renamed). */
+    public synchronized void onTagCreated(Tag tag) {
+        if (tag == null) return;
+        UUID tagId = tag.getId();
+        String name = tag.getName();
+        apply(() -> {
+            tagNames.put(tagId, name);
+            for (Map.Entry<UUID, Set<UUID>> entry : tagIdsByNote.entrySet()) {
+                if (entry.getValue().contains(tagId)) {
+                    updateLabel(entry.getKey());
+                }
+            }
+        });
+    }
+
+    public synchronized void onTagDeleted(UUID tagId) {
+        apply(() -> {
+            tagNames.remove(tagId);
+            for (Iterator<Map.Entry<UUID, Set<UUID>>> it = tagIdsByNote.entrySet().iterator();
+                 it.hasNext(); ) {
+                Map.Entry<UUID, Set<UUID>> entry = it.next();
+                if (entry.getValue().remove(tagId)) {
+                    if (entry.getValue().isEmpty()) it.remove();
+                    updateLabel(entry.getKey());
+                }
+            }
+        });
+    }
+
+    public synchronized void onTagAttached(UUID noteId, UUID tagId) {
+        apply(() -> {
+            tagIdsFor(noteId).add(tagId);
+            updateLabel(noteId);
+        });
+    }
+
+    public synchronized void onTagDetached(UUID noteId, UUID tagId) {
+        apply(() -> {
+            Set<UUID> tagIds = tagIdsByNote.get(noteId);
+            if (tagIds != null && tagIds.remove(tagId)) {
+                if (tagIds.isEmpty()) tagIdsByNote.remove(noteId);
+                updateLabel(noteId);
+            }
+        });
+    }
+
+    /** The note's tags are now exactly tagIds (null or empty = none). */
+    public synchronized void onTagsReplaced(UUID noteId, Collection<UUID> tagIds) {
+        List<UUID> now = tagIds != null ? new ArrayList<>(tagIds) : Collections.emptyList();
+        apply(() -> {
+            tagIdsByNote.remove(noteId);
+            for (UUID tagId : now) {
+                if (tagId != null) tagIdsFor(noteId).add(tagId);
+            }
+            updateLabel(noteId);
+        });
+    }
+
+    public synchronized void onTagAddedToNotes(UUID tagId, Collection<UUID> noteIds) {
+        List<UUID> ids = new ArrayList<>(noteIds);
+        apply(() -> {
+            for (UUID noteId : ids) {
+                tagIdsFor(noteId).add(tagId);
+                updateLabel(noteId);
+            }
+        });
+    }
+
+    public synchronized void onNotesDeleted(Collection<UUID> noteIds) {
+        List<UUID> ids = new ArrayList<>(noteIds);
+        apply(() -> {
+            for (UUID noteId : ids) {
+                tagIdsByNote.remove(noteId);
+                labelsByNote.remove(noteId);
+            }
+        });
+    }
+
+    // ------------------------------------------------------------------------
+
+    // Callers hold the lock
+    private void apply(Runnable change) {
+        if (loaded) {
+            change.run();
+        } else if (replay != null) {
+            replay.add(change);
+        }
+        // Neither: not loaded yet, and the first load reads the change anyway
+    }
+
+    // Callers hold the lock
+    private void awaitWrites() {
+        boolean interrupted = false;
+        while (writesInFlight > 0) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private void clear() {
+        tagNames.clear();
+        tagIdsByNote.clear();
+        labelsByNote.clear();
+    }
+
+    private Set<UUID> tagIdsFor(UUID noteId) {
+        Set<UUID> tagIds = tagIdsByNote.get(noteId);
+        if (tagIds == null) {
+            tagIds = new HashSet<>();
+            tagIdsByNote.put(noteId, tagIds);
+        }
+        return tagIds;
+    }
+
+    private void updateLabel(UUID noteId) {
+        Set<UUID> tagIds = tagIdsByNote.get(noteId);
+        if (tagIds == null || tagIds.isEmpty()) {
+            labelsByNote.remove(noteId);
+            return;
+        }
+
+        List<String> names = new ArrayList<>(tagIds.size());
+        for (UUID tagId : tagIds) {
+            String name = tagNames.get(tagId);
+            if (name != null) names.add(name);
+        }
+        if (names.isEmpty()) {
+            labelsByNote.remove(noteId);
+            return;
+        }
+        Collections.sort(names, String.CASE_INSENSITIVE_ORDER);
+        labelsByNote.put(noteId, TextUtils.join(", ", names));
+    }
+}
@@ -3,6 +3,7 @@ package com.example.anchornotes.domain;
 import android.content.Context;
 
 import com.example.anchornotes.data.Note;
+import com.example.anchornotes.data.ObservableQuery;
 import com.example.anchornotes.data.Tag;
 import com.example.anchornotes.data.TagRepository;
 
@@ -17,10 +18,14 @@ import java.util.UUID;
  *  - Create/delete tags.
  *  - Attach/detach tags to notes.
  *  - Query tags for a note, and notes for a tag.
+ *
+ * Every change is also reported to the in-memory TagIndex once its write
+ * (a single DAO transaction) has committed; a failed write reports nothing.
  */
 public class TagManager {
 
     private final TagRepository tagRepository;
+    private final TagIndex tagIndex = TagIndex.getInstance();
 
     public TagManager(Context context) {
         this.tagRepository = new TagRepository(context.getApplicationContext());
@@ -46,14 +51,26 @@ public class TagManager {
         }
 
         Tag tag = new Tag(trimmed);
-        tagRepository.insertTag(tag);
+        tagIndex.beginWrite();
+        try {
+            tagRepository.insertTag(tag);
+            tagIndex.onTagCreated(tag);
+        } finally {
+            tagIndex.endWrite();
+        }
         return tag;
     }
 
     /** Delete a tag and implicitly removes all note-tag mappings (via foreign key or DAO). */
     public void deleteTag(Tag tag) {
         if (tag == null) return;
-        tagRepository.deleteTag(tag);
+        tagIndex.beginWrite();
+        try {
+            tagRepository.deleteTag(tag);
+            tagIndex.onTagDeleted(tag.getId());
+        } finally {
+            tagIndex.endWrite();
+        }
         // Note: our DAO deletes mappings per-note; here we rely on logic where needed.
     }
 
@@ -64,30 +81,51 @@ public class TagManager {
     /** Attach an existing tag to a note. */
     public void attachTagToNote(UUID noteId, UUID tagId) {
         if (noteId == null || tagId == null) return;
-        tagRepository.attachTagToNote(noteId, tagId);
+        tagIndex.beginWrite();
+        try {
+            tagRepository.attachTagToNote(noteId, tagId);
+            tagIndex.onTagAttached(noteId, tagId);
+        } finally {
+            tagIndex.endWrite();
+        }
     }
 
     /** Detach an existing tag from a note. */
     public void detachTagFromNote(UUID noteId, UUID tagId) {
         if (noteId == null || tagId == null) return;
-        tagRepository.detachTagFromNote(noteId, tagId);
+        tagIndex.beginWrite();
+        try {
+            tagRepository.detachTagFromNote(noteId, tagId);
+            tagIndex.onTagDetached(noteId, tagId);
+        } finally {
+            tagIndex.endWrite();
+        }
     }
 
-    /** Replace all tags for a note with a new set of tag IDs. */
+    /**
+     * Replace all tags for a note with a new set of tag IDs (null or empty
+     * clears them). Runs as one diff-based transaction.
+     */
     public void setTagsForNote(UUID noteId, List<UUID> tagIds) {
         if (noteId == null) return;
-
-        // Clear existing
-        tagRepository.clearTagsForNote(noteId);
-
-        if (tagIds == null) {
-            return;
+        tagIndex.beginWrite();
+        try {
+            tagRepository.replaceTagsForNote(noteId, tagIds);
+            tagIndex.onTagsReplaced(noteId, tagIds);
+        } finally {
+            tagIndex.endWrite();
         }
+    }
 
-        for (UUID tagId : tagIds) {
-            if (tagId != null) {
-                tagRepository.attachTagToNote(noteId, tagId);
-            }
+    /** Attach one tag to many notes in a single transaction. */
+    public void addTagToNotes(UUID tagId, List<UUID> noteIds) {
+        if (tagId == null || noteIds == null || noteIds.isEmpty()) return;
+        tagIndex.beginWrite();
+        try {
+            tagRepository.addTagToNotes(tagId, noteIds);
+            tagIndex.onTagAddedToNotes(tagId, noteIds);
+        } finally {
+            tagIndex.endWrite();
         }
     }
 
@@ -100,6 +138,11 @@ public class TagManager {
         return tags != null ? tags : new ArrayList<>();
     }
 
+    /** getTagsForNote, re-run whenever the note's tags (or tag names) change. */
+    public ObservableQuery<List<Tag>> observeTagsForNote(UUID noteId) {
+        return tagRepository.observeTagsForNote(noteId);
+    }
+
     /** Get all notes that have a given tag. */
     public List<Note> getNotesForTag(UUID tagId) {
         if (tagId == null) {
@@ -9,6 +9,7 @@ import com.example.anchornotes.ReminderReceiver;
 import com.example.anchornotes.data.Reminder;
 
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -68,6 +69,19 @@ public class TimeReminderService {
         }
     }
 
+    /**
+     * Cancel the alarms of many reminders. AlarmManager has no batch call,
+     * so this is one cancel per reminder, but no database work in between.
+     */
+    public void cancelTimeReminders(List<Reminder> reminders) {
+        if (reminders == null) {
+            return;
+        }
+        for (Reminder reminder : reminders) {
+            cancelTimeReminder(reminder);
+        }
+    }
+
     /**
      * Build the PendingIntent used to schedule and cancel alarms
      * for a particular Reminder.
@@ -2,6 +2,11 @@ package com.example.anchornotes.ui;
 
 import android.content.Context;
 import android.graphics.Color;
+import android.graphics.Typeface;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.StyleSpan;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,82 +14,270 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.anchornotes.R;
-import com.example.anchornotes.data.Note;
+import com.example.anchornotes.data.NoteSummary;
 import com.example.anchornotes.data.NoteRepository;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * Adapter for the note list on the home screen.
  * Now supports pinning notes and uses OnNoteClickListener
  * so MainActivity doesn't need to change.
+ *
+ * Built on ListAdapter: every new list is diffed against the current one
+ * on a background thread (rows keyed by note id, compared by content), so
+ * filter, search and pin changes only rebind, insert, remove or move the
+ * rows that actually changed.
+ *
+ * Ids are stable (derived from the note UUID) so RecyclerView can keep
+ * row views across reloads, and a few item_note views can be inflated
+ * ahead of time off the main thread (preInflate) so the first fling
+ * doesn't stall on inflation.
+ *
+ * Search results show the matched snippet instead of the preview, with the
+ * matched terms highlighted from offsets computed with the query; binding
+ * only attaches spans, it never searches the text.
+ *
+ * Long-pressing a row starts multi-select: taps then toggle rows instead
+ * of opening them, until the selection is cleared.
  */
-public class NoteListAdapter extends RecyclerView.Adapter<NoteListAdapter.NoteViewHolder> {
+public class NoteListAdapter extends ListAdapter<NoteSummary, NoteListAdapter.NoteViewHolder> {
 
     // This matches what MainActivity expects.
     public interface OnNoteClickListener {
-        void onNoteClick(Note note);
+        void onNoteClick(NoteSummary note);
+
+        /** Selection mode started, changed or ended (count 0 = ended). */
+        default void onSelectionChanged(int selectedCount) { }
+
+        /** A note's pin state was saved (an observed list refreshes on its own). */
+        default void onNotePinChanged(NoteSummary note) { }
     }
 
+    private static final DiffUtil.ItemCallback<NoteSummary> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<NoteSummary>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull NoteSummary oldItem,
+                                               @NonNull NoteSummary newItem) {
+                    return oldItem.getId().equals(newItem.getId());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull NoteSummary oldItem,
+                                                  @NonNull NoteSummary newItem) {
+                    return oldItem.hasSameContent(newItem);
+                }
+            };
+
+    private static final int SELECTED_ROW_COLOR = 0x332196F3;
+    private static final int HIGHLIGHT_COLOR = 0x66FFEB3B;
+
+    // item_note views inflated in the background, used before inflating inline
+    private final ArrayDeque<View> preInflated = new ArrayDeque<>();
+
     private final Context context;
     private final OnNoteClickListener listener;
-    private List<Note> notes;
+    // Latest list handed to submitList(); the diff may not have landed yet
+    private List<NoteSummary> latestItems;
     private final NoteRepository noteRepository;
 
-    public NoteListAdapter(Context context, List<Note> notes, OnNoteClickListener listener) {
+    // Multi-select state; ids survive paging and reloads of the same rows
+    private boolean selectionMode;
+    private final Set<UUID> selectedIds = new LinkedHashSet<>();
+
+    // getItemId() numbers; only touched on the main thread
+    private final Map<UUID, Long> stableIds = new HashMap<>();
+
+    public NoteListAdapter(Context context, List<NoteSummary> items, OnNoteClickListener listener) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.notes = notes;
         this.listener = listener;
+        setHasStableIds(true);
         this.noteRepository = new NoteRepository(context);
+        setNotes(items);
+    }
+
+    public void setNotes(List<NoteSummary> items) {
+        latestItems = new ArrayList<>(items);
+        submitList(latestItems);
+    }
+
+    /** Add the next page of rows at the end of the list. */
+    public void appendNotes(List<NoteSummary> more) {
+        if (more == null || more.isEmpty()) return;
+        // Build on the latest submitted list, not getCurrentList(), which
+        // lags behind while a diff is still running
+        List<NoteSummary> combined = new ArrayList<>(latestItems.size() + more.size());
+        combined.addAll(latestItems);
+        combined.addAll(more);
+        latestItems = combined;
+        submitList(combined);
     }
 
-    public void setNotes(List<Note> notes) {
-        this.notes = notes;
-        notifyDataSetChanged();
+    /**
+     * Stable id of the note: the number it was given when first seen. Folding
+     * the 128-bit UUID into 64 bits could make two notes collide.
+     */
+    @Override
+    public long getItemId(int position) {
+        UUID id = getItem(position).getId();
+        Long stableId = stableIds.get(id);
+        if (stableId == null) {
+            stableId = (long) stableIds.size();
+            stableIds.put(id, stableId);
+        }
+        return stableId;
+    }
+
+    /**
+     * Inflate count item_note views on a background thread for the given
+     * RecyclerView; onCreateViewHolder() uses them before inflating inline.
+     */
+    public void preInflate(RecyclerView parent, int count) {
+        AsyncLayoutInflater inflater = new AsyncLayoutInflater(context);
+        for (int i = 0; i < count; i++) {
+            inflater.inflate(R.layout.item_note, parent,
+                    (view, resid, p) -> preInflated.add(view));
+        }
+    }
+
+    public boolean isSelectionMode() {
+        return selectionMode;
+    }
+
+    /** Ids of the selected notes, in the order they were picked. */
+    public List<UUID> getSelectedIds() {
+        return new ArrayList<>(selectedIds);
+    }
+
+    /** Leave multi-select mode and unmark all rows. */
+    public void clearSelection() {
+        if (!selectionMode) return;
+        selectionMode = false;
+        selectedIds.clear();
+        notifyItemRangeChanged(0, getItemCount());
+        if (listener != null) {
+            listener.onSelectionChanged(0);
+        }
+    }
+
+    private void toggleSelection(NoteSummary note, int position) {
+        // The row is being removed or the list hasn't laid out the change yet
+        if (position == RecyclerView.NO_POSITION) return;
+
+        if (!selectedIds.remove(note.getId())) {
+            selectedIds.add(note.getId());
+        }
+        notifyItemChanged(position);
+
+        if (selectedIds.isEmpty()) {
+            clearSelection();
+        } else if (listener != null) {
+            listener.onSelectionChanged(selectedIds.size());
+        }
     }
 
     @NonNull
     @Override
     public NoteViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View v = LayoutInflater.from(context).inflate(R.layout.item_note, parent, false);
+        View v = preInflated.poll();
+        if (v == null) {
+            v = LayoutInflater.from(context).inflate(R.layout.item_note, parent, false);
+        }
         return new NoteViewHolder(v);
     }
 
+    private boolean isPinned(NoteSummary note) {
+        Boolean pending = noteRepository.getPendingPinned(note.getId());
+        return pending != null ? pending : note.isPinned();
+    }
+
+    /** Snippet with highlighted matches for search results, else the preview. */
+    private static CharSequence previewText(NoteSummary note) {
+        String snippet = note.getSnippet();
+        int[] highlights = note.getHighlights();
+        if (snippet == null) {
+            return note.getPreview();
+        }
+        if (highlights == null || highlights.length == 0) {
+            return snippet;
+        }
+
+        SpannableString text = new SpannableString(snippet);
+        for (int i = 0; i + 1 < highlights.length; i += 2) {
+            int start = highlights[i];
+            int end = Math.min(highlights[i + 1], snippet.length());
+            if (start < 0 || start >= end) continue;
+            text.setSpan(new BackgroundColorSpan(HIGHLIGHT_COLOR), start, end,
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            text.setSpan(new StyleSpan(Typeface.BOLD), start, end,
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        return text;
+    }
+
+    private static void showPinned(NoteViewHolder holder, boolean pinned) {
+        holder.imgPin.setColorFilter(pinned ? Color.YELLOW : Color.GRAY);
+    }
+
     @Override
     public void onBindViewHolder(@NonNull NoteViewHolder holder, int position) {
-        Note note = notes.get(position);
+        NoteSummary note = getItem(position);
 
         holder.txtTitle.setText(note.getTitle());
-        holder.txtPreview.setText(note.getContent());
+        holder.txtPreview.setText(previewText(note));
 
-        // Pinned icon color
-        if (note.isPinned()) {
-            holder.imgPin.setColorFilter(Color.YELLOW);
-        } else {
-            holder.imgPin.setColorFilter(Color.GRAY);
-        }
+        // Pinned icon color (a queued toggle wins over the loaded state)
+        showPinned(holder, isPinned(note));
 
-        // Toggle pin when star is tapped
+        // Toggle pin when star is tapped. The write is queued and merged with
+        // further taps; the row object is left untouched so the reload after
+        // the write diffs old vs. new state and moves just this row.
         holder.imgPin.setOnClickListener(v -> {
-            note.setPinned(!note.isPinned());
-            noteRepository.updateNote(note);
-            notifyDataSetChanged();
+            boolean pinned = !isPinned(note);
+            showPinned(holder, pinned);
+            noteRepository.setPinnedAsync(note.getId(), pinned, () -> {
+                if (listener != null) {
+                    listener.onNotePinChanged(note);
+                }
+            });
         });
 
-        // Open note on row tap
+        boolean selected = selectionMode && selectedIds.contains(note.getId());
+        holder.itemView.setActivated(selected);
+        holder.itemView.setBackgroundColor(selected ? SELECTED_ROW_COLOR : Color.TRANSPARENT);
+
+        // Open note on row tap (or toggle it while selecting)
         holder.itemView.setOnClickListener(v -> {
-            if (listener != null) {
+            if (selectionMode) {
+                toggleSelection(note, holder.getBindingAdapterPosition());
+            } else if (listener != null) {
                 listener.onNoteClick(note);
             }
         });
-    }
 
-    @Override
-    public int getItemCount() {
-        return notes != null ? notes.size() : 0;
+        // Long press starts multi-select with this row
+        holder.itemView.setOnLongClickListener(v -> {
+            if (!selectionMode) {
+                selectionMode = true;
+                selectedIds.clear();
+            }
+            toggleSelection(note, holder.getBindingAdapterPosition());
+            return true;
+        });
     }
 
     public static class NoteViewHolder extends RecyclerView.ViewHolder {